@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.benchmarks;
+
+import com.ldbc.driver.DbException;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.*;
+import net.ellitron.ldbcsnbimpls.interactive.titan.TitanDb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the {@link TitanDb} complex read query handlers. Each
+ * invocation executes one query, cycling through a fixed set of parameters
+ * drawn from the {@link SnbFixture}, so that a measurement covers persons
+ * with differently sized neighbourhoods rather than one cached answer.
+ * <p>
+ * The three implementations of query 1 are measured separately, to compare
+ * them on the same graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class ComplexQueryBenchmarks {
+
+  /*
+   * Number of distinct parameter sets per query. Must be a power of two.
+   */
+  private static final int NUM_OPS = 64;
+
+  private static final long DAY_MILLIS = 86400000L;
+
+  private final TitanDb.LdbcQuery1Handler query1Handler =
+      new TitanDb.LdbcQuery1Handler();
+  private final TitanDb.LdbcQuery2Handler query2Handler =
+      new TitanDb.LdbcQuery2Handler();
+  private final TitanDb.LdbcQuery3Handler query3Handler =
+      new TitanDb.LdbcQuery3Handler();
+  private final TitanDb.LdbcQuery4Handler query4Handler =
+      new TitanDb.LdbcQuery4Handler();
+  private final TitanDb.LdbcQuery5Handler query5Handler =
+      new TitanDb.LdbcQuery5Handler();
+  private final TitanDb.LdbcQuery6Handler query6Handler =
+      new TitanDb.LdbcQuery6Handler();
+  private final TitanDb.LdbcQuery7Handler query7Handler =
+      new TitanDb.LdbcQuery7Handler();
+  private final TitanDb.LdbcQuery8Handler query8Handler =
+      new TitanDb.LdbcQuery8Handler();
+  private final TitanDb.LdbcQuery9Handler query9Handler =
+      new TitanDb.LdbcQuery9Handler();
+  private final TitanDb.LdbcQuery10Handler query10Handler =
+      new TitanDb.LdbcQuery10Handler();
+  private final TitanDb.LdbcQuery11Handler query11Handler =
+      new TitanDb.LdbcQuery11Handler();
+  private final TitanDb.LdbcQuery12Handler query12Handler =
+      new TitanDb.LdbcQuery12Handler();
+  private final TitanDb.LdbcQuery13Handler query13Handler =
+      new TitanDb.LdbcQuery13Handler();
+  private final TitanDb.LdbcQuery14Handler query14Handler =
+      new TitanDb.LdbcQuery14Handler();
+
+  private LdbcQuery1[] query1Ops = new LdbcQuery1[NUM_OPS];
+  private LdbcQuery2[] query2Ops = new LdbcQuery2[NUM_OPS];
+  private LdbcQuery3[] query3Ops = new LdbcQuery3[NUM_OPS];
+  private LdbcQuery4[] query4Ops = new LdbcQuery4[NUM_OPS];
+  private LdbcQuery5[] query5Ops = new LdbcQuery5[NUM_OPS];
+  private LdbcQuery6[] query6Ops = new LdbcQuery6[NUM_OPS];
+  private LdbcQuery7[] query7Ops = new LdbcQuery7[NUM_OPS];
+  private LdbcQuery8[] query8Ops = new LdbcQuery8[NUM_OPS];
+  private LdbcQuery9[] query9Ops = new LdbcQuery9[NUM_OPS];
+  private LdbcQuery10[] query10Ops = new LdbcQuery10[NUM_OPS];
+  private LdbcQuery11[] query11Ops = new LdbcQuery11[NUM_OPS];
+  private LdbcQuery12[] query12Ops = new LdbcQuery12[NUM_OPS];
+  private LdbcQuery13[] query13Ops = new LdbcQuery13[NUM_OPS];
+  private LdbcQuery14[] query14Ops = new LdbcQuery14[NUM_OPS];
+
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void setUp(TitanGraphState.Graph graph) {
+    SnbFixture fixture = graph.fixture;
+    Random random = new Random(NUM_OPS);
+    long start = SnbFixture.START_DATE + 365 * DAY_MILLIS;
+    long end = SnbFixture.END_DATE;
+
+    for (int i = 0; i < NUM_OPS; i++) {
+      int person = random.nextInt(fixture.numPersons());
+      long personId = fixture.personId(person);
+      long otherPersonId =
+          fixture.personId(random.nextInt(fixture.numPersons()));
+      Date date =
+          new Date(start + (long) (random.nextDouble() * (end - start)));
+      int country = random.nextInt(SnbFixture.COUNTRIES.length);
+
+      query1Ops[i] = new LdbcQuery1(personId,
+          fixture.firstName(random.nextInt(SnbFixture.FIRST_NAMES.length)),
+          20);
+      query2Ops[i] = new LdbcQuery2(personId, date, 20);
+      query3Ops[i] = new LdbcQuery3(personId,
+          SnbFixture.COUNTRIES[country],
+          SnbFixture.COUNTRIES[(country + 1) % SnbFixture.COUNTRIES.length],
+          new Date(start), 365, 20);
+      query4Ops[i] = new LdbcQuery4(personId, date, 180, 10);
+      query5Ops[i] = new LdbcQuery5(personId, new Date(start), 20);
+      query6Ops[i] = new LdbcQuery6(personId,
+          fixture.tagName(random.nextInt(SnbFixture.NUM_TAGS)), 10);
+      query7Ops[i] = new LdbcQuery7(personId, 20);
+      query8Ops[i] = new LdbcQuery8(personId, 20);
+      query9Ops[i] = new LdbcQuery9(personId, date, 20);
+      query10Ops[i] = new LdbcQuery10(personId, 1 + random.nextInt(12), 10);
+      query11Ops[i] = new LdbcQuery11(personId,
+          SnbFixture.COUNTRIES[country], 2000 + random.nextInt(12), 10);
+      query12Ops[i] = new LdbcQuery12(personId,
+          SnbFixture.TAG_CLASSES[random.nextInt(4)], 20);
+      query13Ops[i] = new LdbcQuery13(personId, otherPersonId);
+      query14Ops[i] = new LdbcQuery14(personId, otherPersonId);
+    }
+  }
+
+  @Benchmark
+  public void query1(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query1Handler.executeOperation(query1Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query1GremlinV1(TitanGraphState.Graph graph,
+                              TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query1Handler.executeOperationGremlinV1(query1Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query1GremlinV2(TitanGraphState.Graph graph,
+                              TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query1Handler.executeOperationGremlinV2(query1Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query1TinkerPop(TitanGraphState.Graph graph,
+                              TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query1Handler.executeOperationTinkerPop(query1Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query2(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query2Handler.executeOperation(query2Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query3(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query3Handler.executeOperation(query3Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query4(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query4Handler.executeOperation(query4Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query5(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query5Handler.executeOperation(query5Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query6(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query6Handler.executeOperation(query6Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query7(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query7Handler.executeOperation(query7Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query8(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query8Handler.executeOperation(query8Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query9(TitanGraphState.Graph graph,
+                     TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query9Handler.executeOperation(query9Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query10(TitanGraphState.Graph graph,
+                      TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query10Handler.executeOperation(query10Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query11(TitanGraphState.Graph graph,
+                      TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query11Handler.executeOperation(query11Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query12(TitanGraphState.Graph graph,
+                      TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query12Handler.executeOperation(query12Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query13(TitanGraphState.Graph graph,
+                      TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query13Handler.executeOperation(query13Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void query14(TitanGraphState.Graph graph,
+                      TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    query14Handler.executeOperation(query14Ops[next()], graph.connectionState,
+        reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  private int next() {
+    next = (next + 1) & (NUM_OPS - 1);
+    return next;
+  }
+}
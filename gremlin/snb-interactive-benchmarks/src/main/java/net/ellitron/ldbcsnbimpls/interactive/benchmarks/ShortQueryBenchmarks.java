@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.benchmarks;
+
+import com.ldbc.driver.DbException;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.*;
+import net.ellitron.ldbcsnbimpls.interactive.titan.TitanDb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the {@link TitanDb} short read query handlers. Each
+ * invocation executes one query, cycling through a fixed set of persons and
+ * messages drawn from the {@link SnbFixture}. Message queries alternate
+ * between posts and comments, which the handlers look up differently.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class ShortQueryBenchmarks {
+
+  /*
+   * Number of distinct parameter sets per query. Must be a power of two.
+   */
+  private static final int NUM_OPS = 64;
+
+  private final TitanDb.LdbcShortQuery1PersonProfileHandler
+      shortQuery1Handler = new TitanDb.LdbcShortQuery1PersonProfileHandler();
+  private final TitanDb.LdbcShortQuery2PersonPostsHandler
+      shortQuery2Handler = new TitanDb.LdbcShortQuery2PersonPostsHandler();
+  private final TitanDb.LdbcShortQuery3PersonFriendsHandler
+      shortQuery3Handler = new TitanDb.LdbcShortQuery3PersonFriendsHandler();
+  private final TitanDb.LdbcShortQuery4MessageContentHandler
+      shortQuery4Handler = new TitanDb.LdbcShortQuery4MessageContentHandler();
+  private final TitanDb.LdbcShortQuery5MessageCreatorHandler
+      shortQuery5Handler = new TitanDb.LdbcShortQuery5MessageCreatorHandler();
+  private final TitanDb.LdbcShortQuery6MessageForumHandler
+      shortQuery6Handler = new TitanDb.LdbcShortQuery6MessageForumHandler();
+  private final TitanDb.LdbcShortQuery7MessageRepliesHandler
+      shortQuery7Handler = new TitanDb.LdbcShortQuery7MessageRepliesHandler();
+
+  private LdbcShortQuery1PersonProfile[] shortQuery1Ops =
+      new LdbcShortQuery1PersonProfile[NUM_OPS];
+  private LdbcShortQuery2PersonPosts[] shortQuery2Ops =
+      new LdbcShortQuery2PersonPosts[NUM_OPS];
+  private LdbcShortQuery3PersonFriends[] shortQuery3Ops =
+      new LdbcShortQuery3PersonFriends[NUM_OPS];
+  private LdbcShortQuery4MessageContent[] shortQuery4Ops =
+      new LdbcShortQuery4MessageContent[NUM_OPS];
+  private LdbcShortQuery5MessageCreator[] shortQuery5Ops =
+      new LdbcShortQuery5MessageCreator[NUM_OPS];
+  private LdbcShortQuery6MessageForum[] shortQuery6Ops =
+      new LdbcShortQuery6MessageForum[NUM_OPS];
+  private LdbcShortQuery7MessageReplies[] shortQuery7Ops =
+      new LdbcShortQuery7MessageReplies[NUM_OPS];
+
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void setUp(TitanGraphState.Graph graph) {
+    SnbFixture fixture = graph.fixture;
+    List<Long> posts = fixture.postIds();
+    List<Long> comments = fixture.commentIds();
+    Random random = new Random(NUM_OPS);
+
+    for (int i = 0; i < NUM_OPS; i++) {
+      long personId =
+          fixture.personId(random.nextInt(fixture.numPersons()));
+      long messageId = (i % 2 == 0)
+          ? posts.get(random.nextInt(posts.size()))
+          : comments.get(random.nextInt(comments.size()));
+
+      shortQuery1Ops[i] = new LdbcShortQuery1PersonProfile(personId);
+      shortQuery2Ops[i] = new LdbcShortQuery2PersonPosts(personId, 10);
+      shortQuery3Ops[i] = new LdbcShortQuery3PersonFriends(personId);
+      shortQuery4Ops[i] = new LdbcShortQuery4MessageContent(messageId);
+      shortQuery5Ops[i] = new LdbcShortQuery5MessageCreator(messageId);
+      shortQuery6Ops[i] = new LdbcShortQuery6MessageForum(messageId);
+      shortQuery7Ops[i] = new LdbcShortQuery7MessageReplies(messageId);
+    }
+  }
+
+  @Benchmark
+  public void shortQuery1(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery1Handler.executeOperation(shortQuery1Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void shortQuery2(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery2Handler.executeOperation(shortQuery2Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void shortQuery3(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery3Handler.executeOperation(shortQuery3Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void shortQuery4(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery4Handler.executeOperation(shortQuery4Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void shortQuery5(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery5Handler.executeOperation(shortQuery5Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void shortQuery6(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery6Handler.executeOperation(shortQuery6Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  @Benchmark
+  public void shortQuery7(TitanGraphState.Graph graph,
+                          TitanGraphState.Reporter reporter, Blackhole bh)
+      throws DbException {
+    shortQuery7Handler.executeOperation(shortQuery7Ops[next()],
+        graph.connectionState, reporter.resultReporter);
+    bh.consume(reporter.resultReporter.result());
+  }
+
+  private int next() {
+    next = (next + 1) & (NUM_OPS - 1);
+    return next;
+  }
+}
@@ -0,0 +1,526 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * A small, deterministic social network in the CSV format of the LDBC SNB
+ * data generator (version 0.3.2), for loading with the TitanGraphLoader. It
+ * has the shape of a generated dataset, with every entity and relation the
+ * interactive workload touches, but is only large enough to exercise the
+ * query handlers, not to measure their scaling.
+ * <p>
+ * The values the benchmarks draw parameters from are exposed as constants
+ * and accessors, so that parameters always hit data in the fixture.
+ */
+public class SnbFixture {
+
+  public static final String[] CONTINENTS = {"Europe", "Asia"};
+
+  public static final String[] COUNTRIES = {"Austria", "Germany", "India",
+      "China"};
+
+  public static final String[] CITIES = {"Vienna", "Graz", "Berlin",
+      "Munich", "Mumbai", "Delhi", "Beijing", "Shanghai"};
+
+  public static final String[] FIRST_NAMES = {"Anna", "Ali", "Chen", "Hans",
+      "Jan", "Maria", "Priya", "Rahul", "Wei", "Yang"};
+
+  public static final String[] LAST_NAMES = {"Bauer", "Gupta", "Huber",
+      "Kumar", "Li", "Meyer", "Wang", "Zhang"};
+
+  /*
+   * The tag class hierarchy: a root, and children and grandchildren of it.
+   * TAG_CLASS_PARENTS holds the index of each class's parent, or -1.
+   */
+  public static final String[] TAG_CLASSES = {"Thing", "Agent", "Place",
+      "Work", "Person", "Organisation", "City", "Country", "Album", "Film",
+      "Book", "Song"};
+
+  private static final int[] TAG_CLASS_PARENTS = {-1, 0, 0, 0, 1, 1, 2, 2,
+      3, 3, 3, 3};
+
+  public static final int NUM_TAGS = 48;
+
+  private static final int NUM_COMPANIES = 12;
+
+  private static final int NUM_UNIVERSITIES = 8;
+
+  private static final int FRIENDS_PER_PERSON = 8;
+
+  private static final int POSTS_PER_PERSON = 12;
+
+  private static final int COMMENTS_PER_PERSON = 16;
+
+  private static final int LIKES_PER_PERSON = 16;
+
+  private static final int INTERESTS_PER_PERSON = 4;
+
+  /*
+   * Entity ID ranges. Posts and comments are both messages, so their IDs
+   * must not overlap.
+   */
+  private static final long PLACE_ID_BASE = 0;
+  private static final long ORGANISATION_ID_BASE = 0;
+  private static final long TAG_CLASS_ID_BASE = 0;
+  private static final long TAG_ID_BASE = 0;
+  private static final long PERSON_ID_BASE = 1000;
+  private static final long FORUM_ID_BASE = 0;
+  private static final long POST_ID_BASE = 0;
+  private static final long COMMENT_ID_BASE = 10000000;
+
+  /**
+   * Creation dates of everything in the fixture fall in the three years
+   * starting here.
+   */
+  public static final long START_DATE = 1262304000000L; // 2010-01-01
+
+  public static final long END_DATE = START_DATE + 3 * 365 * 86400000L;
+
+  private final int numPersons;
+
+  private final Random random;
+
+  private final SimpleDateFormat dateTimeFormat;
+
+  private final SimpleDateFormat dateFormat;
+
+  /*
+   * Generated relations that benchmarks draw parameters from.
+   */
+  private final List<long[]> knows = new ArrayList<>();
+  private final List<Long> posts = new ArrayList<>();
+  private final List<Long> comments = new ArrayList<>();
+
+  /**
+   * Creates a fixture of the given number of persons. The same number of
+   * persons always yields the same network.
+   */
+  public SnbFixture(int numPersons) {
+    this.numPersons = numPersons;
+    this.random = new Random(numPersons);
+    this.dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    this.dateTimeFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    this.dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    this.dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+  }
+
+  /**
+   * Writes the node and edge files of the fixture into the given directory.
+   */
+  public void write(Path dir) throws IOException {
+    Files.createDirectories(dir);
+
+    writePlaces(dir);
+    writeOrganisations(dir);
+    writeTags(dir);
+    writePersons(dir);
+    writeKnows(dir);
+    writeForumsAndMessages(dir);
+    writeLikes(dir);
+  }
+
+  public int numPersons() {
+    return numPersons;
+  }
+
+  public long personId(int i) {
+    return PERSON_ID_BASE + i;
+  }
+
+  /**
+   * Returns the ID of the wall forum of the ith person.
+   */
+  public long forumId(int i) {
+    return FORUM_ID_BASE + (i % numPersons);
+  }
+
+  public String firstName(int i) {
+    return FIRST_NAMES[i % FIRST_NAMES.length];
+  }
+
+  /**
+   * Returns the friendships of the fixture as pairs of person IDs.
+   */
+  public List<long[]> knows() {
+    return knows;
+  }
+
+  public List<Long> postIds() {
+    return posts;
+  }
+
+  public List<Long> commentIds() {
+    return comments;
+  }
+
+  public long cityId(int i) {
+    return PLACE_ID_BASE + CONTINENTS.length + COUNTRIES.length
+        + (i % CITIES.length);
+  }
+
+  public long countryId(int i) {
+    return PLACE_ID_BASE + CONTINENTS.length + (i % COUNTRIES.length);
+  }
+
+  public long tagId(int i) {
+    return TAG_ID_BASE + (i % NUM_TAGS);
+  }
+
+  public String tagName(int i) {
+    return "Tag" + (i % NUM_TAGS);
+  }
+
+  public long companyId(int i) {
+    return ORGANISATION_ID_BASE + (i % NUM_COMPANIES);
+  }
+
+  public long universityId(int i) {
+    return ORGANISATION_ID_BASE + NUM_COMPANIES + (i % NUM_UNIVERSITIES);
+  }
+
+  /*
+   * Places: continents, then countries, then cities, each part of the one
+   * before.
+   */
+  private void writePlaces(Path dir) throws IOException {
+    try (BufferedWriter places = open(dir, "place_0_0.csv",
+        "id|name|url|type");
+         BufferedWriter isPartOf = open(dir,
+             "place_isPartOf_place_0_0.csv", "Place.id|Place.id")) {
+      for (int i = 0; i < CONTINENTS.length; i++) {
+        row(places, PLACE_ID_BASE + i, CONTINENTS[i], url(CONTINENTS[i]),
+            "continent");
+      }
+      for (int i = 0; i < COUNTRIES.length; i++) {
+        row(places, countryId(i), COUNTRIES[i], url(COUNTRIES[i]), "country");
+        row(isPartOf, countryId(i), PLACE_ID_BASE + (i / 2));
+      }
+      for (int i = 0; i < CITIES.length; i++) {
+        row(places, cityId(i), CITIES[i], url(CITIES[i]), "city");
+        row(isPartOf, cityId(i), countryId(i / 2));
+      }
+    }
+  }
+
+  /*
+   * Companies are located in countries, universities in cities.
+   */
+  private void writeOrganisations(Path dir) throws IOException {
+    try (BufferedWriter organisations = open(dir, "organisation_0_0.csv",
+        "id|type|name|url");
+         BufferedWriter isLocatedIn = open(dir,
+             "organisation_isLocatedIn_place_0_0.csv",
+             "Organisation.id|Place.id")) {
+      for (int i = 0; i < NUM_COMPANIES; i++) {
+        String name = "Company_" + i;
+        row(organisations, companyId(i), "company", name, url(name));
+        row(isLocatedIn, companyId(i), countryId(i));
+      }
+      for (int i = 0; i < NUM_UNIVERSITIES; i++) {
+        String name = "University_" + i;
+        row(organisations, universityId(i), "university", name, url(name));
+        row(isLocatedIn, universityId(i), cityId(i));
+      }
+    }
+  }
+
+  /*
+   * Tags are spread over the leaves of the tag class hierarchy.
+   */
+  private void writeTags(Path dir) throws IOException {
+    try (BufferedWriter tagClasses = open(dir, "tagclass_0_0.csv",
+        "id|name|url");
+         BufferedWriter isSubclassOf = open(dir,
+             "tagclass_isSubclassOf_tagclass_0_0.csv",
+             "TagClass.id|TagClass.id");
+         BufferedWriter tags = open(dir, "tag_0_0.csv", "id|name|url");
+         BufferedWriter hasType = open(dir, "tag_hasType_tagclass_0_0.csv",
+             "Tag.id|TagClass.id")) {
+      List<Integer> leaves = new ArrayList<>();
+      for (int i = 0; i < TAG_CLASSES.length; i++) {
+        row(tagClasses, TAG_CLASS_ID_BASE + i, TAG_CLASSES[i],
+            url(TAG_CLASSES[i]));
+        if (TAG_CLASS_PARENTS[i] >= 0) {
+          row(isSubclassOf, TAG_CLASS_ID_BASE + i,
+              TAG_CLASS_ID_BASE + TAG_CLASS_PARENTS[i]);
+        }
+        if (i >= 4) {
+          leaves.add(i);
+        }
+      }
+      for (int i = 0; i < NUM_TAGS; i++) {
+        row(tags, tagId(i), tagName(i), url(tagName(i)));
+        row(hasType, tagId(i),
+            TAG_CLASS_ID_BASE + leaves.get(i % leaves.size()));
+      }
+    }
+  }
+
+  private void writePersons(Path dir) throws IOException {
+    try (BufferedWriter persons = open(dir, "person_0_0.csv",
+        "id|firstName|lastName|gender|birthday|creationDate|locationIP"
+            + "|browserUsed|language|email");
+         BufferedWriter isLocatedIn = open(dir,
+             "person_isLocatedIn_place_0_0.csv", "Person.id|Place.id");
+         BufferedWriter hasInterest = open(dir,
+             "person_hasInterest_tag_0_0.csv", "Person.id|Tag.id");
+         BufferedWriter workAt = open(dir,
+             "person_workAt_organisation_0_0.csv",
+             "Person.id|Organisation.id|workFrom");
+         BufferedWriter studyAt = open(dir,
+             "person_studyAt_organisation_0_0.csv",
+             "Person.id|Organisation.id|classYear")) {
+      for (int i = 0; i < numPersons; i++) {
+        long birthday = START_DATE - (20 + random.nextInt(30)) * 365 * 86400000L
+            + random.nextInt(365) * 86400000L;
+        String firstName = firstName(i);
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        row(persons, personId(i), firstName, lastName,
+            random.nextBoolean() ? "male" : "female",
+            dateFormat.format(new Date(birthday)),
+            dateTime(randomDate(START_DATE, START_DATE + 365 * 86400000L)),
+            ip(), browser(), "en;de",
+            firstName + i + "@example.com");
+
+        row(isLocatedIn, personId(i), cityId(random.nextInt(CITIES.length)));
+
+        Set<Integer> interests = new HashSet<>();
+        while (interests.size() < INTERESTS_PER_PERSON) {
+          interests.add(random.nextInt(NUM_TAGS));
+        }
+        for (int tag : interests) {
+          row(hasInterest, personId(i), tagId(tag));
+        }
+
+        row(workAt, personId(i), companyId(random.nextInt(NUM_COMPANIES)),
+            2000 + random.nextInt(12));
+        row(studyAt, personId(i),
+            universityId(random.nextInt(NUM_UNIVERSITIES)),
+            1990 + random.nextInt(20));
+      }
+    }
+  }
+
+  /*
+   * Each person befriends a few others, so everyone has around twice as
+   * many friends. Each pair is written once; the loader adds both
+   * directions.
+   */
+  private void writeKnows(Path dir) throws IOException {
+    Set<Long> pairs = new HashSet<>();
+    try (BufferedWriter out = open(dir, "person_knows_person_0_0.csv",
+        "Person.id|Person.id|creationDate")) {
+      for (int i = 0; i < numPersons; i++) {
+        for (int f = 0; f < FRIENDS_PER_PERSON / 2; f++) {
+          int j = random.nextInt(numPersons);
+          int a = Math.min(i, j);
+          int b = Math.max(i, j);
+          if (a == b || !pairs.add((long) a * numPersons + b)) {
+            continue;
+          }
+          row(out, personId(a), personId(b),
+              dateTime(randomDate(START_DATE + 365 * 86400000L, END_DATE)));
+          knows.add(new long[] {personId(a), personId(b)});
+        }
+      }
+    }
+  }
+
+  /*
+   * Every person has a wall forum, moderated by them, that their friends
+   * are members of and their posts go into. Comments reply to random posts
+   * and earlier comments.
+   */
+  private void writeForumsAndMessages(Path dir) throws IOException {
+    try (BufferedWriter forums = open(dir, "forum_0_0.csv",
+        "id|title|creationDate");
+         BufferedWriter hasModerator = open(dir,
+             "forum_hasModerator_person_0_0.csv", "Forum.id|Person.id");
+         BufferedWriter hasMember = open(dir,
+             "forum_hasMember_person_0_0.csv",
+             "Forum.id|Person.id|joinDate");
+         BufferedWriter forumHasTag = open(dir, "forum_hasTag_tag_0_0.csv",
+             "Forum.id|Tag.id");
+         BufferedWriter postFile = open(dir, "post_0_0.csv",
+             "id|imageFile|creationDate|locationIP|browserUsed|language"
+                 + "|content|length");
+         BufferedWriter containerOf = open(dir,
+             "forum_containerOf_post_0_0.csv", "Forum.id|Post.id");
+         BufferedWriter postHasCreator = open(dir,
+             "post_hasCreator_person_0_0.csv", "Post.id|Person.id");
+         BufferedWriter postHasTag = open(dir, "post_hasTag_tag_0_0.csv",
+             "Post.id|Tag.id");
+         BufferedWriter postIsLocatedIn = open(dir,
+             "post_isLocatedIn_place_0_0.csv", "Post.id|Place.id");
+         BufferedWriter commentFile = open(dir, "comment_0_0.csv",
+             "id|creationDate|locationIP|browserUsed|content|length");
+         BufferedWriter commentHasCreator = open(dir,
+             "comment_hasCreator_person_0_0.csv", "Comment.id|Person.id");
+         BufferedWriter commentHasTag = open(dir,
+             "comment_hasTag_tag_0_0.csv", "Comment.id|Tag.id");
+         BufferedWriter commentIsLocatedIn = open(dir,
+             "comment_isLocatedIn_place_0_0.csv", "Comment.id|Place.id");
+         BufferedWriter replyOfPost = open(dir,
+             "comment_replyOf_post_0_0.csv", "Comment.id|Post.id");
+         BufferedWriter replyOfComment = open(dir,
+             "comment_replyOf_comment_0_0.csv", "Comment.id|Comment.id")) {
+      List<List<Long>> friends = new ArrayList<>();
+      for (int i = 0; i < numPersons; i++) {
+        friends.add(new ArrayList<>());
+      }
+      for (long[] pair : knows) {
+        friends.get((int) (pair[0] - PERSON_ID_BASE)).add(pair[1]);
+        friends.get((int) (pair[1] - PERSON_ID_BASE)).add(pair[0]);
+      }
+
+      for (int i = 0; i < numPersons; i++) {
+        long forumId = forumId(i);
+        row(forums, forumId, "Wall of " + firstName(i) + " " + i,
+            dateTime(randomDate(START_DATE, START_DATE + 365 * 86400000L)));
+        row(hasModerator, forumId, personId(i));
+        row(forumHasTag, forumId, tagId(random.nextInt(NUM_TAGS)));
+        for (long friend : friends.get(i)) {
+          row(hasMember, forumId, friend,
+              dateTime(randomDate(START_DATE + 365 * 86400000L, END_DATE)));
+        }
+
+        for (int p = 0; p < POSTS_PER_PERSON; p++) {
+          long postId = POST_ID_BASE + (long) i * POSTS_PER_PERSON + p;
+          String content = "Post " + postId + " about " + tagName(p);
+          row(postFile, postId, "",
+              dateTime(randomDate(START_DATE + 365 * 86400000L, END_DATE)),
+              ip(), browser(), "en", content, content.length());
+          row(containerOf, forumId, postId);
+          row(postHasCreator, postId, personId(i));
+          row(postIsLocatedIn, postId, countryId(random.nextInt(
+              COUNTRIES.length)));
+          Set<Integer> tags = new HashSet<>();
+          int numTags = 1 + random.nextInt(3);
+          while (tags.size() < numTags) {
+            tags.add(random.nextInt(NUM_TAGS));
+          }
+          for (int tag : tags) {
+            row(postHasTag, postId, tagId(tag));
+          }
+          posts.add(postId);
+        }
+      }
+
+      for (int i = 0; i < numPersons; i++) {
+        for (int c = 0; c < COMMENTS_PER_PERSON; c++) {
+          long commentId =
+              COMMENT_ID_BASE + (long) i * COMMENTS_PER_PERSON + c;
+          String content = "Comment " + commentId;
+          row(commentFile, commentId,
+              dateTime(randomDate(START_DATE + 365 * 86400000L, END_DATE)),
+              ip(), browser(), content, content.length());
+          row(commentHasCreator, commentId, personId(i));
+          row(commentHasTag, commentId, tagId(random.nextInt(NUM_TAGS)));
+          row(commentIsLocatedIn, commentId, countryId(random.nextInt(
+              COUNTRIES.length)));
+          if (comments.isEmpty() || random.nextInt(3) > 0) {
+            row(replyOfPost, commentId,
+                posts.get(random.nextInt(posts.size())));
+          } else {
+            row(replyOfComment, commentId,
+                comments.get(random.nextInt(comments.size())));
+          }
+          comments.add(commentId);
+        }
+      }
+    }
+  }
+
+  private void writeLikes(Path dir) throws IOException {
+    try (BufferedWriter likesPost = open(dir, "person_likes_post_0_0.csv",
+        "Person.id|Post.id|creationDate");
+         BufferedWriter likesComment = open(dir,
+             "person_likes_comment_0_0.csv",
+             "Person.id|Comment.id|creationDate")) {
+      for (int i = 0; i < numPersons; i++) {
+        Set<Long> liked = new HashSet<>();
+        for (int l = 0; l < LIKES_PER_PERSON; l++) {
+          boolean post = random.nextBoolean();
+          long messageId = post
+              ? posts.get(random.nextInt(posts.size()))
+              : comments.get(random.nextInt(comments.size()));
+          if (!liked.add(messageId)) {
+            continue;
+          }
+          row(post ? likesPost : likesComment, personId(i), messageId,
+              dateTime(randomDate(START_DATE + 365 * 86400000L, END_DATE)));
+        }
+      }
+    }
+  }
+
+  private static BufferedWriter open(Path dir, String fileName,
+                                     String header) throws IOException {
+    BufferedWriter out = Files.newBufferedWriter(dir.resolve(fileName),
+        StandardCharsets.UTF_8);
+    out.write(header);
+    out.newLine();
+    return out;
+  }
+
+  private static void row(BufferedWriter out, Object... colVals)
+      throws IOException {
+    for (int i = 0; i < colVals.length; i++) {
+      if (i > 0) {
+        out.write('|');
+      }
+      out.write(String.valueOf(colVals[i]));
+    }
+    out.newLine();
+  }
+
+  private long randomDate(long from, long to) {
+    return from + (long) (random.nextDouble() * (to - from));
+  }
+
+  private String dateTime(long millis) {
+    return dateTimeFormat.format(new Date(millis));
+  }
+
+  private String ip() {
+    return String.format("%d.%d.%d.%d", 1 + random.nextInt(223),
+        random.nextInt(256), random.nextInt(256), 1 + random.nextInt(254));
+  }
+
+  private String browser() {
+    String[] browsers = {"Firefox", "Chrome", "Safari", "Internet Explorer"};
+    return browsers[random.nextInt(browsers.length)];
+  }
+
+  private static String url(String name) {
+    return "http://dbpedia.org/resource/" + name;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.benchmarks;
+
+import com.ldbc.driver.ResultReporter;
+import com.ldbc.driver.runtime.ConcurrentErrorReporter;
+import net.ellitron.ldbcsnbimpls.interactive.titan.TitanDbConnectionState;
+import net.ellitron.ldbcsnbimpls.interactive.titan.TitanGraphLoader;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A TitanDB graph holding an {@link SnbFixture}, shared by all benchmark
+ * threads of a trial. The graph is loaded with the TitanGraphLoader into a
+ * BerkeleyJE store in a temporary directory, so benchmarks need no Cassandra
+ * cluster, and is deleted again when the trial ends.
+ * <p>
+ * The schema parameter selects the loader's schema options, so each
+ * benchmark is measured against each way of storing the graph:
+ * <ul>
+ * <li>strings: all properties stored as Strings, IDs in the iid index</li>
+ * <li>typed: dates and numbers stored typed (--typedSchema)</li>
+ * <li>typedNumeric: additionally, IDs in per-label numeric indexes
+ * (--numericIds)</li>
+ * <li>indexed: additionally, vertex-centric creationDate indexes
+ * (--edgeIndexes)</li>
+ * </ul>
+ */
+public class TitanGraphState {
+
+  /**
+   * Number of persons in the fixture.
+   */
+  public static final int NUM_PERSONS = 200;
+
+  @State(Scope.Benchmark)
+  public static class Graph {
+
+    @Param({"strings", "typed", "typedNumeric", "indexed"})
+    public String schema;
+
+    public SnbFixture fixture;
+
+    public TitanDbConnectionState connectionState;
+
+    private Path tmpDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      boolean typedSchema = !schema.equals("strings");
+      boolean numericIds =
+          schema.equals("typedNumeric") || schema.equals("indexed");
+      boolean edgeIndexes = schema.equals("indexed");
+
+      tmpDir = Files.createTempDirectory("snb-benchmark");
+      Path inputDir = tmpDir.resolve("input");
+      Path storageDir = tmpDir.resolve("graph");
+
+      fixture = new SnbFixture(NUM_PERSONS);
+      fixture.write(inputDir);
+
+      List<String> loaderArgs = new ArrayList<>();
+      loaderArgs.add("--storageBackend");
+      loaderArgs.add("berkeleyje");
+      loaderArgs.add("--storageDirectory");
+      loaderArgs.add(storageDir.toString());
+      loaderArgs.add("--graphName");
+      loaderArgs.add("fixture-" + schema);
+      loaderArgs.add("--checkpointDir");
+      loaderArgs.add(tmpDir.resolve("checkpoints").toString());
+      loaderArgs.add("--input");
+      loaderArgs.add(inputDir.toString());
+      loaderArgs.add("--batchSize");
+      loaderArgs.add("256");
+      if (typedSchema) {
+        loaderArgs.add("--typedSchema");
+      }
+      if (numericIds) {
+        loaderArgs.add("--numericIds");
+      }
+      if (edgeIndexes) {
+        loaderArgs.add("--edgeIndexes");
+      }
+      if (!TitanGraphLoader.load(loaderArgs.toArray(new String[0]))) {
+        throw new RuntimeException(String.format("ERROR: Failed to load "
+            + "fixture from %s, see log.", inputDir));
+      }
+
+      Map<String, String> props = new HashMap<>();
+      props.put("storage.backend", "berkeleyje");
+      props.put("storage.directory", storageDir.toString());
+      props.put("typedSchema", String.valueOf(typedSchema));
+      props.put("numericIds", String.valueOf(numericIds));
+      props.put("edgeIndexes", String.valueOf(edgeIndexes));
+      connectionState = new TitanDbConnectionState(props);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      connectionState.close();
+      deleteRecursively(tmpDir);
+    }
+  }
+
+  /**
+   * A result reporter per benchmark thread. Handlers report their results
+   * into it, and benchmarks consume the results from it.
+   */
+  @State(Scope.Thread)
+  public static class Reporter {
+
+    public ResultReporter resultReporter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      resultReporter = new ResultReporter.SimpleResultReporter(
+          new ConcurrentErrorReporter());
+    }
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+          throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e)
+          throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
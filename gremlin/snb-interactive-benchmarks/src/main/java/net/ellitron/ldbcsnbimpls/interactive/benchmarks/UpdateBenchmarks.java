@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.benchmarks;
+
+import com.ldbc.driver.DbException;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.*;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate1AddPerson.Organization;
+import net.ellitron.ldbcsnbimpls.interactive.titan.TitanDb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Microbenchmarks of the {@link TitanDb} update handlers. Every invocation
+ * adds new entities to the graph under IDs that the fixture does not use,
+ * connected to existing entities of the {@link SnbFixture}, so the graph
+ * grows over the course of a trial.
+ * <p>
+ * Edges between persons and other entities can only be added once. The
+ * updates that add nothing but such an edge (2, 3, 5 and 8) therefore start
+ * it from a new person, which is added before each invocation and not
+ * measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class UpdateBenchmarks {
+
+  /*
+   * New entities take IDs from here up, far above those in the fixture.
+   * Shared by all threads, so that concurrent updates never collide.
+   */
+  private static final AtomicLong nextId = new AtomicLong(1L << 40);
+
+  private final TitanDb.LdbcUpdate1AddPersonHandler update1Handler =
+      new TitanDb.LdbcUpdate1AddPersonHandler();
+  private final TitanDb.LdbcUpdate2AddPostLikeHandler update2Handler =
+      new TitanDb.LdbcUpdate2AddPostLikeHandler();
+  private final TitanDb.LdbcUpdate3AddCommentLikeHandler update3Handler =
+      new TitanDb.LdbcUpdate3AddCommentLikeHandler();
+  private final TitanDb.LdbcUpdate4AddForumHandler update4Handler =
+      new TitanDb.LdbcUpdate4AddForumHandler();
+  private final TitanDb.LdbcUpdate5AddForumMembershipHandler update5Handler =
+      new TitanDb.LdbcUpdate5AddForumMembershipHandler();
+  private final TitanDb.LdbcUpdate6AddPostHandler update6Handler =
+      new TitanDb.LdbcUpdate6AddPostHandler();
+  private final TitanDb.LdbcUpdate7AddCommentHandler update7Handler =
+      new TitanDb.LdbcUpdate7AddCommentHandler();
+  private final TitanDb.LdbcUpdate8AddFriendshipHandler update8Handler =
+      new TitanDb.LdbcUpdate8AddFriendshipHandler();
+
+  private SnbFixture fixture;
+
+  private Random random;
+
+  /**
+   * A person added to the graph before each invocation of a benchmark that
+   * uses it.
+   */
+  @State(Scope.Thread)
+  public static class FreshPerson {
+
+    private final TitanDb.LdbcUpdate1AddPersonHandler update1Handler =
+        new TitanDb.LdbcUpdate1AddPersonHandler();
+
+    public long personId;
+
+    @Setup(Level.Invocation)
+    public void setUp(UpdateBenchmarks benchmarks,
+                      TitanGraphState.Graph graph,
+                      TitanGraphState.Reporter reporter) throws DbException {
+      personId = nextId.getAndIncrement();
+      update1Handler.executeOperation(benchmarks.newPerson(personId),
+          graph.connectionState, reporter.resultReporter);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp(TitanGraphState.Graph graph) {
+    fixture = graph.fixture;
+    random = new Random(Thread.currentThread().getId());
+  }
+
+  @Benchmark
+  public void update1AddPerson(TitanGraphState.Graph graph,
+                               TitanGraphState.Reporter reporter)
+      throws DbException {
+    update1Handler.executeOperation(newPerson(nextId.getAndIncrement()),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update2AddPostLike(TitanGraphState.Graph graph,
+                                 TitanGraphState.Reporter reporter,
+                                 FreshPerson person)
+      throws DbException {
+    List<Long> posts = fixture.postIds();
+    update2Handler.executeOperation(new LdbcUpdate2AddPostLike(
+            person.personId, posts.get(random.nextInt(posts.size())), now()),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update3AddCommentLike(TitanGraphState.Graph graph,
+                                    TitanGraphState.Reporter reporter,
+                                    FreshPerson person)
+      throws DbException {
+    List<Long> comments = fixture.commentIds();
+    update3Handler.executeOperation(new LdbcUpdate3AddCommentLike(
+            person.personId, comments.get(random.nextInt(comments.size())),
+            now()),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update4AddForum(TitanGraphState.Graph graph,
+                              TitanGraphState.Reporter reporter)
+      throws DbException {
+    long forumId = nextId.getAndIncrement();
+    update4Handler.executeOperation(new LdbcUpdate4AddForum(forumId,
+            "Group for " + forumId, now(), randomPersonId(),
+            Arrays.asList(fixture.tagId(random.nextInt(SnbFixture.NUM_TAGS)))),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update5AddForumMembership(TitanGraphState.Graph graph,
+                                        TitanGraphState.Reporter reporter,
+                                        FreshPerson person)
+      throws DbException {
+    update5Handler.executeOperation(new LdbcUpdate5AddForumMembership(
+            fixture.forumId(random.nextInt(fixture.numPersons())),
+            person.personId, now()),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update6AddPost(TitanGraphState.Graph graph,
+                             TitanGraphState.Reporter reporter)
+      throws DbException {
+    long postId = nextId.getAndIncrement();
+    int author = random.nextInt(fixture.numPersons());
+    String content = "Post " + postId;
+    update6Handler.executeOperation(new LdbcUpdate6AddPost(postId, "", now(),
+            "10.0.0.1", "Firefox", "en", content, content.length(),
+            fixture.personId(author), fixture.forumId(author),
+            fixture.countryId(random.nextInt(SnbFixture.COUNTRIES.length)),
+            Arrays.asList(fixture.tagId(random.nextInt(SnbFixture.NUM_TAGS)))),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update7AddComment(TitanGraphState.Graph graph,
+                                TitanGraphState.Reporter reporter)
+      throws DbException {
+    long commentId = nextId.getAndIncrement();
+    List<Long> posts = fixture.postIds();
+    String content = "Comment " + commentId;
+    update7Handler.executeOperation(new LdbcUpdate7AddComment(commentId,
+            now(), "10.0.0.1", "Firefox", content, content.length(),
+            randomPersonId(),
+            fixture.countryId(random.nextInt(SnbFixture.COUNTRIES.length)),
+            posts.get(random.nextInt(posts.size())), -1,
+            Arrays.asList(fixture.tagId(random.nextInt(SnbFixture.NUM_TAGS)))),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  @Benchmark
+  public void update8AddFriendship(TitanGraphState.Graph graph,
+                                   TitanGraphState.Reporter reporter,
+                                   FreshPerson person)
+      throws DbException {
+    update8Handler.executeOperation(new LdbcUpdate8AddFriendship(
+            person.personId, randomPersonId(), now()),
+        graph.connectionState, reporter.resultReporter);
+  }
+
+  private LdbcUpdate1AddPerson newPerson(long personId) {
+    int i = random.nextInt(fixture.numPersons());
+    return new LdbcUpdate1AddPerson(personId, fixture.firstName(i),
+        "Newcomer", "female", new Date(SnbFixture.START_DATE), now(),
+        "10.0.0.1", "Firefox", fixture.cityId(i), Arrays.asList("en"),
+        Arrays.asList("newcomer" + personId + "@example.com"),
+        Arrays.asList(fixture.tagId(i)),
+        Arrays.asList(new Organization(fixture.universityId(i), 2005)),
+        Collections.singletonList(new Organization(fixture.companyId(i),
+            2010)));
+  }
+
+  private long randomPersonId() {
+    return fixture.personId(random.nextInt(fixture.numPersons()));
+  }
+
+  private static Date now() {
+    return new Date(SnbFixture.END_DATE);
+  }
+}
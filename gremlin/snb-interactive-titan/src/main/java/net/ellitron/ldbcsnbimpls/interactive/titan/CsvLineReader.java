@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a byte range of a UTF-8 text file, keeping track of the
+ * byte offset at which the next line starts. This lets the
+ * {@link TitanGraphLoader} cut large dataset files into ranges that are loaded
+ * by different threads.
+ * <p>
+ * A reader for the range [start, end) returns exactly those lines whose first
+ * byte lies within the range, so a set of adjacent ranges covering a file
+ * returns every line of the file exactly once.
+ */
+public class CsvLineReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer buffer;
+
+  /*
+   * Offset in the file just past the last line start owned by this reader.
+   */
+  private final long end;
+
+  /*
+   * Offset in the file of the next byte to be returned by nextByte().
+   */
+  private long position;
+
+  private byte[] lineBytes;
+
+  /**
+   * Opens a reader for the lines starting in the byte range [start, end) of
+   * the given file.
+   */
+  public CsvLineReader(Path file, long start, long end) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.end = end;
+    this.lineBytes = new byte[256];
+
+    if (start > 0) {
+      // The line containing byte start - 1 belongs to the previous range.
+      seek(start - 1);
+      int b;
+      while ((b = nextByte()) != -1 && b != '\n') {
+        continue;
+      }
+    } else {
+      seek(0);
+    }
+  }
+
+  /**
+   * Returns the next line of the range without its line terminator, or null
+   * if there are no more lines in the range.
+   */
+  public String readLine() throws IOException {
+    if (position >= end) {
+      return null;
+    }
+
+    int length = 0;
+    int b;
+    while ((b = nextByte()) != -1 && b != '\n') {
+      if (length == lineBytes.length) {
+        lineBytes = Arrays.copyOf(lineBytes, length * 2);
+      }
+      lineBytes[length++] = (byte) b;
+    }
+
+    if (b == -1 && length == 0) {
+      return null;
+    }
+
+    if (length > 0 && lineBytes[length - 1] == '\r') {
+      length--;
+    }
+
+    return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the offset in the file at which the next line starts.
+   */
+  public long position() {
+    return position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void seek(long offset) throws IOException {
+    channel.position(offset);
+    buffer.clear();
+    buffer.flip();
+    position = offset;
+  }
+
+  private int nextByte() throws IOException {
+    if (!buffer.hasRemaining()) {
+      buffer.clear();
+      int n = channel.read(buffer);
+      buffer.flip();
+      if (n <= 0) {
+        return -1;
+      }
+    }
+    position++;
+    return buffer.get() & 0xff;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import net.ellitron.ldbcsnbimpls.interactive.core.Entity;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Lookups into the static dimensions of the social network: places,
+ * organisations, tags and the tag class hierarchy. None of these change
+ * during a benchmark run, so each lookup is computed once, on first use, and
+ * shared by all threads executing queries through a
+ * {@link TitanDbConnectionState}. Cached values are never modified after
+ * they are published.
+ * <p>
+ * Places and organisations are keyed by TitanDB vertex ID, which queries
+ * know from the edges that reach them without reading the vertex.
+ * <p>
+ * Values are computed with the graph reads of the calling query, outside of
+ * any lock, so threads that miss on the same key at once may each compute
+ * it. The first to finish publishes its value, and all return that one.
+ */
+public class DimensionCache {
+
+  /**
+   * Returned for names that match no vertex.
+   */
+  public static final long NO_VERTEX = -1;
+
+  private final ConcurrentHashMap<String, Long> countriesByName =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Long, Organisation> organisations =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, LongHashSet> tagClassTags =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Long, String> tagNames =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the vertex ID of the country with the given name, or NO_VERTEX
+   * if there is none.
+   */
+  public long countryId(GraphTraversalSource g, String name) {
+    return memoize(countriesByName, name, (n) -> {
+      List<Vertex> countries = g.V().has("name", n)
+          .hasLabel(Entity.PLACE.getName()).has("type", "country").toList();
+      if (countries.isEmpty()) {
+        return NO_VERTEX;
+      }
+      return ((Number) countries.get(0).id()).longValue();
+    });
+  }
+
+  /**
+   * Returns the name of the organisation with the given vertex ID.
+   */
+  public String organisationName(GraphTraversalSource g,
+                                 long organisationId) {
+    return organisation(g, organisationId).name;
+  }
+
+  /**
+   * Returns the vertex ID of the country the organisation with the given
+   * vertex ID is located in. Companies are located in a country directly,
+   * universities in a city of the country.
+   */
+  public long organisationCountryId(GraphTraversalSource g,
+                                    long organisationId) {
+    return organisation(g, organisationId).countryId;
+  }
+
+  /**
+   * Returns the vertex IDs of the tags whose type is the tag class with the
+   * given name or any of its descendants. The set must not be modified.
+   */
+  public LongHashSet tagClassTags(GraphTraversalSource g, String name) {
+    return memoize(tagClassTags, name, (n) -> {
+      LongHashSet tags = new LongHashSet();
+      Deque<Vertex> tagClasses = new ArrayDeque<>(g.V().has("name", n)
+          .hasLabel(Entity.TAGCLASS.getName()).toList());
+      while (!tagClasses.isEmpty()) {
+        Vertex tagClass = tagClasses.poll();
+        tagClass.edges(Direction.IN, "hasType").forEachRemaining((e) -> {
+          tags.add(((Number) e.outVertex().id()).longValue());
+        });
+        tagClass.edges(Direction.IN, "isSubclassOf").forEachRemaining((e) -> {
+          tagClasses.add(e.outVertex());
+        });
+      }
+      return tags;
+    });
+  }
+
+  /**
+   * Returns the name of the tag with the given vertex ID.
+   */
+  public String tagName(GraphTraversalSource g, long tagId) {
+    return memoize(tagNames, tagId,
+        (id) -> g.V(id).next().<String>value("name"));
+  }
+
+  private Organisation organisation(GraphTraversalSource g,
+                                    long organisationId) {
+    return memoize(organisations, organisationId, (id) -> {
+      Vertex organisation = g.V(id).next();
+      Vertex place =
+          organisation.edges(Direction.OUT, "isLocatedIn").next().inVertex();
+      while (!"country".equals(place.value("type"))) {
+        Iterator<Vertex> parents = place.vertices(Direction.OUT, "isPartOf");
+        if (!parents.hasNext()) {
+          break;
+        }
+        place = parents.next();
+      }
+      return new Organisation(organisation.<String>value("name"),
+          ((Number) place.id()).longValue());
+    });
+  }
+
+  /*
+   * Returns the value of the key in the map, computing and adding it first if
+   * it is absent. Unlike ConcurrentHashMap.computeIfAbsent, holds no lock on
+   * the map while computing, which reads from the backend.
+   */
+  private static <K, V> V memoize(ConcurrentHashMap<K, V> map, K key,
+                                  Function<K, V> compute) {
+    V value = map.get(key);
+    if (value == null) {
+      value = compute.apply(key);
+      V published = map.putIfAbsent(key, value);
+      if (published != null) {
+        value = published;
+      }
+    }
+    return value;
+  }
+
+  private static class Organisation {
+
+    final String name;
+    final long countryId;
+
+    Organisation(String name, long countryId) {
+      this.name = name;
+      this.countryId = countryId;
+    }
+  }
+}
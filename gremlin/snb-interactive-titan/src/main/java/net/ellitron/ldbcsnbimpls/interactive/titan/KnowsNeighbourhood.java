@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The friends and friends of friends of a person over knows edges, excluding
+ * the person, as TitanDB vertex IDs. Many complex queries start from this
+ * neighbourhood; a {@link Cache} lets queries issued for the same person in
+ * quick succession share one expansion.
+ */
+public class KnowsNeighbourhood {
+
+  private final long[] friends;
+
+  private final long[] friendsOfFriends;
+
+  private KnowsNeighbourhood(long[] friends, long[] friendsOfFriends) {
+    this.friends = friends;
+    this.friendsOfFriends = friendsOfFriends;
+  }
+
+  /**
+   * Expands the neighbourhood of the given person, one traversal per hop.
+   */
+  public static KnowsNeighbourhood compute(GraphTraversalSource g,
+                                           Vertex person) {
+    long self = ((Number) person.id()).longValue();
+
+    // Friends are seen by the time friends of friends are collected, so
+    // persons that are both are kept as friends only.
+    LongHashSet seen = new LongHashSet();
+    long[] friends = collect(g.V(person).out("knows").id(), self, seen);
+
+    long[] friendsOfFriends = new long[0];
+    if (friends.length > 0) {
+      Object[] friendIds = new Object[friends.length];
+      for (int i = 0; i < friends.length; i++) {
+        friendIds[i] = friends[i];
+      }
+      friendsOfFriends = collect(g.V(friendIds).out("knows").id(), self,
+          seen);
+    }
+
+    return new KnowsNeighbourhood(friends, friendsOfFriends);
+  }
+
+  /*
+   * Returns the distinct IDs from the iterator that are neither self nor
+   * already in seen, adding them to seen.
+   */
+  private static long[] collect(Iterator<Object> ids, long self,
+                                LongHashSet seen) {
+    long[] result = new long[16];
+    int size = 0;
+    while (ids.hasNext()) {
+      long id = ((Number) ids.next()).longValue();
+      if (id == self) {
+        continue;
+      }
+      if (seen.add(id)) {
+        if (size == result.length) {
+          result = Arrays.copyOf(result, size * 2);
+        }
+        result[size++] = id;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Returns the vertex IDs of the person's friends. The array must not be
+   * modified.
+   */
+  public long[] friends() {
+    return friends;
+  }
+
+  /**
+   * Returns the vertex IDs of the persons two hops away that are not also
+   * friends. The array must not be modified.
+   */
+  public long[] friendsOfFriends() {
+    return friendsOfFriends;
+  }
+
+  /**
+   * Returns the vertex IDs of both friends and friends of friends.
+   */
+  public long[] all() {
+    long[] all = Arrays.copyOf(friends, friends.length
+        + friendsOfFriends.length);
+    System.arraycopy(friendsOfFriends, 0, all, friends.length,
+        friendsOfFriends.length);
+    return all;
+  }
+
+  public int size() {
+    return friends.length + friendsOfFriends.length;
+  }
+
+  /**
+   * A bounded cache of recently computed neighbourhoods by LDBC SNB person
+   * ID, whose entries expire a fixed time after they were computed. Updates
+   * that add friendships clear it.
+   */
+  public static class Cache {
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private final long ttlMillis;
+
+    private final Map<Long, Entry> entries =
+        new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+          }
+        };
+
+    public Cache(long ttlMillis) {
+      this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached neighbourhood of the given person, or null if there
+     * is none that is still fresh.
+     */
+    public synchronized KnowsNeighbourhood get(long personId) {
+      Entry entry = entries.get(personId);
+      if (entry == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() > entry.expiresAt) {
+        entries.remove(personId);
+        return null;
+      }
+      return entry.neighbourhood;
+    }
+
+    public synchronized void put(long personId,
+                                 KnowsNeighbourhood neighbourhood) {
+      entries.put(personId, new Entry(neighbourhood,
+          System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void clear() {
+      entries.clear();
+    }
+
+    private static class Entry {
+
+      final KnowsNeighbourhood neighbourhood;
+      final long expiresAt;
+
+      Entry(KnowsNeighbourhood neighbourhood, long expiresAt) {
+        this.neighbourhood = neighbourhood;
+        this.expiresAt = expiresAt;
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash set of primitive longs. Used by the {@link TitanDb}
+ * query handlers to track visited TitanDB vertex IDs during traversals
+ * without paying for a boxed Long per vertex.
+ * <p>
+ * Long.MIN_VALUE is reserved to mark empty slots and cannot be added.
+ */
+public class LongHashSet {
+
+  private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+  private static final double MAX_LOAD_FACTOR = 0.6;
+
+  private long[] keys;
+
+  private int mask;
+
+  private int size;
+
+  /**
+   * Creates an empty set.
+   */
+  public LongHashSet() {
+    this(16);
+  }
+
+  /**
+   * Creates an empty set sized to hold the given number of elements without
+   * growing.
+   */
+  public LongHashSet(int expectedSize) {
+    int capacity = Integer.highestOneBit(
+        Math.max(4, (int) (expectedSize / MAX_LOAD_FACTOR)) - 1) << 1;
+    this.keys = new long[capacity];
+    Arrays.fill(keys, EMPTY_KEY);
+    this.mask = capacity - 1;
+    this.size = 0;
+  }
+
+  /**
+   * Adds the given key to the set. Returns true if it was not present before.
+   */
+  public boolean add(long key) {
+    if (key == EMPTY_KEY) {
+      throw new IllegalArgumentException(
+          "Long.MIN_VALUE cannot be added to the set.");
+    }
+
+    int i = (int) LongHashing.mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key) {
+        return false;
+      } else if (k == EMPTY_KEY) {
+        keys[i] = key;
+        size++;
+        if (size > (mask + 1) * MAX_LOAD_FACTOR) {
+          grow();
+        }
+        return true;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  public boolean contains(long key) {
+    int i = (int) LongHashing.mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key) {
+        return true;
+      } else if (k == EMPTY_KEY) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the elements of the set, in no particular order.
+   */
+  public long[] toArray() {
+    long[] elements = new long[size];
+    int n = 0;
+    for (long k : keys) {
+      if (k != EMPTY_KEY) {
+        elements[n++] = k;
+      }
+    }
+    return elements;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    keys = new long[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY_KEY);
+    mask = keys.length - 1;
+    for (long k : oldKeys) {
+      if (k != EMPTY_KEY) {
+        int i = (int) LongHashing.mix(k) & mask;
+        while (keys[i] != EMPTY_KEY) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = k;
+      }
+    }
+  }
+}
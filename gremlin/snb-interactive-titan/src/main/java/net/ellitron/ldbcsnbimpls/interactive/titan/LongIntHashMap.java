@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive long keys to primitive int
+ * values. Used by the {@link TitanDb} query handlers to aggregate counts by
+ * TitanDB vertex ID without a boxed entry per vertex.
+ * <p>
+ * Long.MIN_VALUE is reserved to mark empty slots and cannot be used as a key.
+ */
+public class LongIntHashMap {
+
+  private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+  private static final double MAX_LOAD_FACTOR = 0.6;
+
+  private long[] keys;
+
+  private int[] values;
+
+  private int mask;
+
+  private int size;
+
+  /**
+   * Receives the entries of a map.
+   */
+  public interface EntryConsumer {
+
+    void accept(long key, int value);
+  }
+
+  public LongIntHashMap() {
+    this.keys = new long[16];
+    this.values = new int[16];
+    Arrays.fill(keys, EMPTY_KEY);
+    this.mask = keys.length - 1;
+    this.size = 0;
+  }
+
+  /**
+   * Adds delta to the value of the given key, treating absent keys as 0, and
+   * returns the new value.
+   */
+  public int addTo(long key, int delta) {
+    int i = indexOf(key);
+    if (keys[i] == key) {
+      values[i] += delta;
+      return values[i];
+    }
+    insert(i, key, delta);
+    return delta;
+  }
+
+  /**
+   * Associates the given value with the given key, replacing any previous
+   * value.
+   */
+  public void put(long key, int value) {
+    int i = indexOf(key);
+    if (keys[i] == key) {
+      values[i] = value;
+    } else {
+      insert(i, key, value);
+    }
+  }
+
+  /**
+   * Returns the value associated with the given key, or defaultValue if there
+   * is no such key in the map.
+   */
+  public int get(long key, int defaultValue) {
+    int i = indexOf(key);
+    return (keys[i] == key) ? values[i] : defaultValue;
+  }
+
+  public boolean containsKey(long key) {
+    return keys[indexOf(key)] == key;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Passes each entry of the map to the consumer, in no particular order.
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY_KEY) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  /*
+   * Returns the slot holding the given key, or the empty slot where it would
+   * be inserted.
+   */
+  private int indexOf(long key) {
+    if (key == EMPTY_KEY) {
+      throw new IllegalArgumentException(
+          "Long.MIN_VALUE cannot be used as a key.");
+    }
+
+    int i = (int) LongHashing.mix(key) & mask;
+    while (keys[i] != key && keys[i] != EMPTY_KEY) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private void insert(int slot, long key, int value) {
+    keys[slot] = key;
+    values[slot] = value;
+    size++;
+    if (size > keys.length * MAX_LOAD_FACTOR) {
+      grow();
+    }
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldValues.length * 2];
+    Arrays.fill(keys, EMPTY_KEY);
+    mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != EMPTY_KEY) {
+        int i = (int) LongHashing.mix(oldKeys[j]) & mask;
+        while (keys[i] != EMPTY_KEY) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+}
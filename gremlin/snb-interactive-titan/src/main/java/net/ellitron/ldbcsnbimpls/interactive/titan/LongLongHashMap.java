@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An open addressing hash map from primitive long keys to primitive long
+ * values. Used by the {@link TitanGraphLoader} to remember which TitanDB
+ * vertex ID was assigned to each LDBC SNB ID, without paying for a boxed
+ * Long/Long entry per vertex.
+ * <p>
+ * The table is split into a fixed number of segments that grow
+ * independently. Each segment keeps its keys and values in a LongBuffer which
+ * is either backed by the heap or, when a spill directory is given, by a
+ * memory-mapped file in that directory. The latter keeps very large maps
+ * (SF100 and up) out of the Java heap and lets the OS page them as needed.
+ * The files are unlinked as soon as they are mapped, so none are left behind
+ * however the JVM exits.
+ * <p>
+ * Long.MIN_VALUE is reserved to mark empty slots and cannot be used as a key.
+ */
+public class LongLongHashMap {
+
+  private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+  private static final int SEGMENT_BITS = 4;
+
+  private static final int INITIAL_SEGMENT_CAPACITY = 1 << 10;
+
+  /*
+   * A mapped region can be at most 2GB, which bounds the number of 8 byte
+   * slots per segment.
+   */
+  private static final int MAX_SEGMENT_CAPACITY = 1 << 27;
+
+  private static final double MAX_LOAD_FACTOR = 0.6;
+
+  /*
+   * Directory holding the memory-mapped segment files, or null if this map
+   * lives on the heap.
+   */
+  private final Path spillDir;
+
+  private final Segment[] segments;
+
+  private long size;
+
+  /**
+   * Creates an empty map that is kept on the heap.
+   */
+  public LongLongHashMap() {
+    this(null);
+  }
+
+  /**
+   * Creates an empty map.
+   *
+   * @param spillDir Directory in which to create the memory-mapped files
+   * backing this map, or null to keep the map on the heap.
+   */
+  public LongLongHashMap(Path spillDir) {
+    this.spillDir = spillDir;
+    this.segments = new Segment[1 << SEGMENT_BITS];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(INITIAL_SEGMENT_CAPACITY);
+    }
+    this.size = 0;
+  }
+
+  /**
+   * Associates the given value with the given key, replacing any previous
+   * value.
+   */
+  public void put(long key, long value) {
+    if (key == EMPTY_KEY) {
+      throw new IllegalArgumentException(
+          "Long.MIN_VALUE cannot be used as a key.");
+    }
+
+    long hash = LongHashing.mix(key);
+    Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    if (segment.put(hash, key, value)) {
+      size++;
+    }
+  }
+
+  /**
+   * Returns the value associated with the given key, or defaultValue if there
+   * is no such key in the map.
+   */
+  public long get(long key, long defaultValue) {
+    long hash = LongHashing.mix(key);
+    Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    return segment.get(hash, key, defaultValue);
+  }
+
+  public boolean containsKey(long key) {
+    long hash = LongHashing.mix(key);
+    Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    return segment.indexOf(hash, key) >= 0;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Releases the resources held by this map. The map must not be used
+   * afterwards.
+   */
+  public void close() {
+    for (Segment segment : segments) {
+      segment.release();
+    }
+  }
+
+  private class Segment {
+
+    private LongBuffer keys;
+    private LongBuffer values;
+    private int mask;
+    private int count;
+
+    Segment(int capacity) {
+      allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+      if (spillDir == null) {
+        keys = LongBuffer.allocate(capacity);
+        values = LongBuffer.allocate(capacity);
+      } else {
+        try {
+          keys = map("idmap-keys-", capacity);
+          values = map("idmap-vals-", capacity);
+        } catch (IOException e) {
+          throw new RuntimeException(String.format(
+              "ERROR: Unable to map ID map segment in %s", spillDir), e);
+        }
+      }
+
+      for (int i = 0; i < capacity; i++) {
+        keys.put(i, EMPTY_KEY);
+      }
+
+      mask = capacity - 1;
+      count = 0;
+    }
+
+    /*
+     * Maps a new file in the spill directory and unlinks it right away. The
+     * mapping keeps its pages alive until the buffer is garbage collected.
+     * Platforms that refuse to delete a mapped file get it deleted on exit.
+     */
+    private LongBuffer map(String prefix, int capacity) throws IOException {
+      Path file = Files.createTempFile(spillDir, prefix, ".bin");
+      LongBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            (long) capacity * Long.BYTES).asLongBuffer();
+      }
+      try {
+        Files.delete(file);
+      } catch (IOException e) {
+        file.toFile().deleteOnExit();
+      }
+      return buffer;
+    }
+
+    /*
+     * Returns the slot holding the given key, or -1 if the key is absent.
+     */
+    int indexOf(long hash, long key) {
+      int i = (int) hash & mask;
+      while (true) {
+        long k = keys.get(i);
+        if (k == key) {
+          return i;
+        } else if (k == EMPTY_KEY) {
+          return -1;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    long get(long hash, long key, long defaultValue) {
+      int i = indexOf(hash, key);
+      return (i >= 0) ? values.get(i) : defaultValue;
+    }
+
+    /*
+     * Returns true if the key was not present before.
+     */
+    boolean put(long hash, long key, long value) {
+      int i = (int) hash & mask;
+      while (true) {
+        long k = keys.get(i);
+        if (k == key) {
+          values.put(i, value);
+          return false;
+        } else if (k == EMPTY_KEY) {
+          keys.put(i, key);
+          values.put(i, value);
+          count++;
+          if (count > (mask + 1) * MAX_LOAD_FACTOR) {
+            grow();
+          }
+          return true;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    private void grow() {
+      int capacity = mask + 1;
+      if (capacity >= MAX_SEGMENT_CAPACITY) {
+        throw new IllegalStateException(String.format(
+            "ERROR: ID map segment is full (%d entries)", count));
+      }
+
+      LongBuffer oldKeys = keys;
+      LongBuffer oldValues = values;
+
+      allocate(capacity * 2);
+      for (int i = 0; i < capacity; i++) {
+        long k = oldKeys.get(i);
+        if (k != EMPTY_KEY) {
+          put(LongHashing.mix(k), k, oldValues.get(i));
+        }
+      }
+    }
+
+    void release() {
+      keys = null;
+      values = null;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of {@link PersonSummary}s, shared by
+ * all threads executing queries through a {@link TitanDbConnectionState}.
+ * <p>
+ * Summaries are found both by LDBC SNB ID, for queries that start at a given
+ * person, and by TitanDB vertex ID, for persons reached over an edge. The
+ * latter is known from the edge alone, so a hit costs no backend read at all.
+ */
+public class PersonCache {
+
+  private final Map<Long, PersonSummary> bySnbId;
+
+  private final Map<Long, PersonSummary> byVertexId;
+
+  /**
+   * Creates a cache holding the summaries of at most capacity persons.
+   */
+  public PersonCache(int capacity) {
+    this.byVertexId = new HashMap<>();
+    this.bySnbId = new LinkedHashMap<Long, PersonSummary>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<Long, PersonSummary> eldest) {
+        if (size() > capacity) {
+          byVertexId.remove(eldest.getValue().vertexId());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the summary of the person with the given LDBC SNB ID, or null if
+   * it is not cached.
+   */
+  public synchronized PersonSummary getBySnbId(long snbId) {
+    return bySnbId.get(snbId);
+  }
+
+  /**
+   * Returns the summary of the person with the given TitanDB vertex ID, or
+   * null if it is not cached.
+   */
+  public synchronized PersonSummary getByVertexId(long vertexId) {
+    PersonSummary summary = byVertexId.get(vertexId);
+    if (summary != null) {
+      // Keep the entry's recency in step with its use.
+      bySnbId.get(summary.snbId());
+    }
+    return summary;
+  }
+
+  public synchronized void put(PersonSummary summary) {
+    PersonSummary old = bySnbId.put(summary.snbId(), summary);
+    if (old != null) {
+      byVertexId.remove(old.vertexId());
+    }
+    byVertexId.put(summary.vertexId(), summary);
+  }
+
+  /**
+   * Drops the summary of the person with the given LDBC SNB ID, if cached.
+   */
+  public synchronized void invalidate(long snbId) {
+    PersonSummary old = bySnbId.remove(snbId);
+    if (old != null) {
+      byVertexId.remove(old.vertexId());
+    }
+  }
+
+  /**
+   * The attributes of a person that short queries return, and the city the
+   * person is located in.
+   */
+  public static class PersonSummary {
+
+    private final long snbId;
+    private final long vertexId;
+    private final String firstName;
+    private final String lastName;
+    private final long birthday;
+    private final String locationIP;
+    private final String browserUsed;
+    private final long cityId;
+    private final String gender;
+    private final long creationDate;
+
+    public PersonSummary(long snbId, long vertexId, String firstName,
+                         String lastName, long birthday, String locationIP, String browserUsed,
+                         long cityId, String gender, long creationDate) {
+      this.snbId = snbId;
+      this.vertexId = vertexId;
+      this.firstName = firstName;
+      this.lastName = lastName;
+      this.birthday = birthday;
+      this.locationIP = locationIP;
+      this.browserUsed = browserUsed;
+      this.cityId = cityId;
+      this.gender = gender;
+      this.creationDate = creationDate;
+    }
+
+    public long snbId() {
+      return snbId;
+    }
+
+    public long vertexId() {
+      return vertexId;
+    }
+
+    public String firstName() {
+      return firstName;
+    }
+
+    public String lastName() {
+      return lastName;
+    }
+
+    public long birthday() {
+      return birthday;
+    }
+
+    public String locationIP() {
+      return locationIP;
+    }
+
+    public String browserUsed() {
+      return browserUsed;
+    }
+
+    public long cityId() {
+      return cityId;
+    }
+
+    public String gender() {
+      return gender;
+    }
+
+    public long creationDate() {
+      return creationDate;
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.ldbc.driver.*;
 import com.ldbc.driver.control.LoggingService;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.*;
 import net.ellitron.ldbcsnbimpls.interactive.core.Entity;
+import net.ellitron.ldbcsnbimpls.interactive.titan.PersonCache.PersonSummary;
 import org.apache.tinkerpop.gremlin.process.traversal.Scope;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
 import org.apache.tinkerpop.gremlin.structure.*;
@@ -28,7 +29,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+import static org.apache.tinkerpop.gremlin.process.traversal.Order.decr;
 import static org.apache.tinkerpop.gremlin.process.traversal.Order.incr;
 import static org.apache.tinkerpop.gremlin.process.traversal.P.*;
 import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.*;
@@ -45,6 +49,31 @@ import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.*;
  * 127.0.0.1).</li>
  * <li>graphName - name of the graph stored in TitanDB against which to execute
  * queries (default: default).</li>
+ * <li>typedSchema - true if the graph was loaded with TitanGraphLoader's
+ * --typedSchema option, which stores dates and numbers as Long and Integer
+ * properties rather than Strings. Updates write values in the matching
+ * encoding; reads accept both (default: false).</li>
+ * <li>numericIds - true if the graph was loaded with TitanGraphLoader's
+ * --numericIds option, which identifies vertices by their label and a Long
+ * snbId property instead of the "entity:id" iid String (default: false).</li>
+ * <li>edgeIndexes - true if the graph was loaded with TitanGraphLoader's
+ * --edgeIndexes option, which indexes edges by creationDate so that the
+ * newest edges of a vertex are read in index order. Updates copy message
+ * creation dates onto their edges to match (default: false).</li>
+ * <li>graphPoolSize - number of independent graph instances to open, each
+ * with its own Cassandra connection pool and database cache. Driver threads
+ * are spread over them round-robin (default: 1).</li>
+ * <li>cache.*, query.*, storage.* - passed on to TitanDB as they are, e.g.
+ * cache.db-cache, cache.db-cache-size, storage.read-time or the
+ * storage.cassandra.thrift.cpool.* connection pool settings.</li>
+ * <li>personCacheSize - number of person summaries (attributes and city) to
+ * keep in a process-wide LRU cache, serving short queries 1, 3, 5 and 7
+ * without backend reads for popular persons. 0 disables the cache
+ * (default: 0).</li>
+ * <li>neighbourhoodCacheTtl - milliseconds for which the friends and friends
+ * of friends of a person are kept and reused by complex queries on that
+ * person. Adding a friendship clears all of them. 0 disables the cache
+ * (default: 0).</li>
  * </ul>
  * <p>
  * References:<br>
@@ -75,10 +104,22 @@ public class TitanDb extends Db {
    * is not the ID that is assigned to the vertex by TitanDB during the data
    * loading phase).
    */
-  private static Long getSNBId(Vertex v) {
+  private static Long getSNBId(DbConnectionState dbConnectionState,
+                               Vertex v) {
+    if (numericIds(dbConnectionState)) {
+      return v.<Long>value("snbId");
+    }
     return Long.decode(v.<String>property("iid").value().split(":")[1]);
   }
 
+  private static boolean numericIds(DbConnectionState dbConnectionState) {
+    return ((TitanDbConnectionState) dbConnectionState).numericIds();
+  }
+
+  private static boolean edgeIndexes(DbConnectionState dbConnectionState) {
+    return ((TitanDbConnectionState) dbConnectionState).edgeIndexes();
+  }
+
   /*
    * Return a String representing the globally unique Iid property on all
    * vertices in the graph. This Iid property is a function of both the Entity
@@ -89,6 +130,721 @@ public class TitanDb extends Db {
     return type.getName() + ":" + String.valueOf(id);
   }
 
+  /*
+   * Returns the vertex of the given type with the given LDBC SNB ID, using
+   * whichever index the graph was loaded with. Messages are looked up as
+   * Comments first, then as Posts.
+   */
+  private static Vertex getVertex(GraphTraversalSource g,
+                                  DbConnectionState dbConnectionState, Entity type, long id) {
+    if (type == Entity.MESSAGE) {
+      Iterator<Vertex> comment =
+          lookupVertex(g, dbConnectionState, Entity.COMMENT, id);
+      if (comment.hasNext()) {
+        return comment.next();
+      }
+      return lookupVertex(g, dbConnectionState, Entity.POST, id).next();
+    }
+    return lookupVertex(g, dbConnectionState, type, id).next();
+  }
+
+  private static Iterator<Vertex> lookupVertex(GraphTraversalSource g,
+                                               DbConnectionState dbConnectionState, Entity type, long id) {
+    if (numericIds(dbConnectionState)) {
+      return g.V().hasLabel(type.getName()).has("snbId", id);
+    }
+    return g.V().has("iid", makeIid(type, id));
+  }
+
+  /*
+   * Returns the vertices of the given type with the given LDBC SNB IDs, in no
+   * particular order.
+   */
+  private static List<Vertex> getVertices(GraphTraversalSource g,
+                                          DbConnectionState dbConnectionState, Entity type,
+                                          Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    if (numericIds(dbConnectionState)) {
+      return g.V().hasLabel(type.getName()).has("snbId", within(ids))
+          .toList();
+    }
+    List<String> iids = new ArrayList<>(ids.size());
+    ids.forEach((id) -> iids.add(makeIid(type, id)));
+    return g.V().has("iid", within(iids)).toList();
+  }
+
+  /*
+   * Appends the property identifying a new vertex of the given type to the
+   * key values it is created with.
+   */
+  private static void addIdProperty(List<Object> keyValues,
+                                    DbConnectionState dbConnectionState, Entity type, long id) {
+    if (numericIds(dbConnectionState)) {
+      keyValues.add("snbId");
+      keyValues.add(id);
+    } else {
+      keyValues.add("iid");
+      keyValues.add(makeIid(type, id));
+    }
+  }
+
+  /*
+   * Returns the limit newest edges of the vertex with the given label and
+   * direction and a creationDate in [minDate, maxDate], read in order from
+   * the edge label's creationDate index, plus any further edges as old as the
+   * oldest of them. The caller breaks those ties.
+   */
+  private static List<Edge> newestEdges(GraphTraversalSource g, Vertex v,
+                                        Direction direction, String label, long minDate, long maxDate,
+                                        int limit) {
+    List<Edge> edges = g.V(v).toE(direction, label)
+        .has("creationDate", gte(minDate)).has("creationDate", lte(maxDate))
+        .order().by("creationDate", decr).limit(limit).toList();
+    if (edges.size() < limit || limit == 0) {
+      return edges;
+    }
+
+    Object oldestDate = edges.get(edges.size() - 1).value("creationDate");
+    Set<Edge> newest = new HashSet<>(edges);
+    g.V(v).toE(direction, label).has("creationDate", oldestDate)
+        .forEachRemaining((e) -> {
+          if (newest.add(e)) {
+            edges.add(e);
+          }
+        });
+    return edges;
+  }
+
+  /*
+   * Returns the key values for an edge from a message created at the given
+   * date, which carries that date only in graphs with edge indexes.
+   */
+  private static Object[] messageEdgeKeyValues(
+      DbConnectionState dbConnectionState, Date creationDate) {
+    if (edgeIndexes(dbConnectionState)) {
+      return new Object[] {"creationDate",
+          dateValue(dbConnectionState, creationDate)};
+    }
+    return new Object[0];
+  }
+
+  /*
+   * Returns the summary of the person with the given LDBC SNB ID, from the
+   * person cache if it holds it.
+   */
+  private static PersonSummary getPersonSummary(GraphTraversalSource g,
+                                                DbConnectionState dbConnectionState, long personId) {
+    PersonCache cache =
+        ((TitanDbConnectionState) dbConnectionState).personCache();
+    if (cache != null) {
+      PersonSummary summary = cache.getBySnbId(personId);
+      if (summary != null) {
+        return summary;
+      }
+    }
+    return loadPersonSummary(dbConnectionState,
+        getVertex(g, dbConnectionState, Entity.PERSON, personId), cache);
+  }
+
+  /*
+   * Returns the summary of the given person vertex, from the person cache if
+   * it holds it. Persons reached over an edge are found in the cache without
+   * reading the vertex.
+   */
+  private static PersonSummary getPersonSummary(
+      DbConnectionState dbConnectionState, Vertex person) {
+    PersonCache cache =
+        ((TitanDbConnectionState) dbConnectionState).personCache();
+    if (cache != null) {
+      PersonSummary summary =
+          cache.getByVertexId(((Number) person.id()).longValue());
+      if (summary != null) {
+        return summary;
+      }
+    }
+    return loadPersonSummary(dbConnectionState, person, cache);
+  }
+
+  private static PersonSummary loadPersonSummary(
+      DbConnectionState dbConnectionState, Vertex person, PersonCache cache) {
+    Map<String, Object> propertyMap = new HashMap<>();
+    person.properties().forEachRemaining((prop) -> {
+      propertyMap.put(prop.key(), prop.value());
+    });
+
+    Vertex place =
+        person.edges(Direction.OUT, "isLocatedIn").next().inVertex();
+
+    PersonSummary summary = new PersonSummary(
+        getSNBId(dbConnectionState, person),
+        ((Number) person.id()).longValue(),
+        (String) propertyMap.get("firstName"),
+        (String) propertyMap.get("lastName"),
+        longValue(propertyMap.get("birthday")),
+        (String) propertyMap.get("locationIP"),
+        (String) propertyMap.get("browserUsed"),
+        getSNBId(dbConnectionState, place),
+        (String) propertyMap.get("gender"),
+        longValue(propertyMap.get("creationDate")));
+
+    if (cache != null) {
+      cache.put(summary);
+    }
+    return summary;
+  }
+
+  /*
+   * Returns the length of the shortest path over knows edges between the two
+   * given persons, or -1 if they are not connected.
+   *
+   * Searches breadth-first from both persons at once, each step expanding
+   * whichever side has the smaller frontier by a whole level. The first
+   * person reached from both sides lies on a shortest path. This explores
+   * about 2·d^(k/2) rather than d^k persons for a path of length k.
+   */
+  private static int shortestKnowsPathLength(GraphTraversalSource g,
+                                             Vertex person1, Vertex person2) {
+    long source = ((Number) person1.id()).longValue();
+    long target = ((Number) person2.id()).longValue();
+    if (source == target) {
+      return 0;
+    }
+
+    LongHashSet sourceVisited = new LongHashSet();
+    LongHashSet targetVisited = new LongHashSet();
+    sourceVisited.add(source);
+    targetVisited.add(target);
+    long[] sourceFrontier = {source};
+    long[] targetFrontier = {target};
+
+    int length = 0;
+    while (sourceFrontier.length > 0 && targetFrontier.length > 0) {
+      boolean fromSource = sourceFrontier.length <= targetFrontier.length;
+      long[] frontier = fromSource ? sourceFrontier : targetFrontier;
+      LongHashSet visited = fromSource ? sourceVisited : targetVisited;
+      LongHashSet otherVisited = fromSource ? targetVisited : sourceVisited;
+      length++;
+
+      long[] next = new long[frontier.length];
+      int nextSize = 0;
+      Iterator<Object> neighbours = g.V(vertexIds(frontier)).out("knows").id();
+      while (neighbours.hasNext()) {
+        long neighbour = ((Number) neighbours.next()).longValue();
+        if (otherVisited.contains(neighbour)) {
+          return length;
+        }
+        if (visited.add(neighbour)) {
+          if (nextSize == next.length) {
+            next = Arrays.copyOf(next, nextSize * 2);
+          }
+          next[nextSize++] = neighbour;
+        }
+      }
+
+      if (fromSource) {
+        sourceFrontier = Arrays.copyOf(next, nextSize);
+      } else {
+        targetFrontier = Arrays.copyOf(next, nextSize);
+      }
+    }
+
+    return -1;
+  }
+
+  /*
+   * Returns every shortest path over knows edges between the two given
+   * persons, as arrays of TitanDB vertex IDs from person1 to person2. Returns
+   * no paths if they are not connected.
+   *
+   * Like shortestKnowsPathLength(), but each side records the predecessors of
+   * every person it reaches, forming a DAG of the shortest paths from its
+   * root. The level on which the sides meet is expanded completely, and the
+   * paths are the combinations of the paths through each person on which
+   * they met.
+   */
+  private static List<long[]> shortestKnowsPaths(GraphTraversalSource g,
+                                                 Vertex person1, Vertex person2) {
+    long source = ((Number) person1.id()).longValue();
+    long target = ((Number) person2.id()).longValue();
+    List<long[]> paths = new ArrayList<>();
+    if (source == target) {
+      paths.add(new long[] {source});
+      return paths;
+    }
+
+    LongHashSet sourceVisited = new LongHashSet();
+    LongHashSet targetVisited = new LongHashSet();
+    sourceVisited.add(source);
+    targetVisited.add(target);
+    Map<Long, List<Long>> sourceParents = new HashMap<>();
+    Map<Long, List<Long>> targetParents = new HashMap<>();
+    long[] sourceFrontier = {source};
+    long[] targetFrontier = {target};
+
+    LongHashSet meets = new LongHashSet();
+    List<Long> meetList = new ArrayList<>();
+    while (sourceFrontier.length > 0 && targetFrontier.length > 0) {
+      boolean fromSource = sourceFrontier.length <= targetFrontier.length;
+      long[] frontier = fromSource ? sourceFrontier : targetFrontier;
+      LongHashSet visited = fromSource ? sourceVisited : targetVisited;
+      LongHashSet otherVisited = fromSource ? targetVisited : sourceVisited;
+      Map<Long, List<Long>> parents = fromSource ? sourceParents : targetParents;
+
+      LongHashSet nextSet = new LongHashSet(frontier.length);
+      List<Long> next = new ArrayList<>();
+      Iterator<Edge> edges = g.V(vertexIds(frontier)).outE("knows");
+      while (edges.hasNext()) {
+        Edge e = edges.next();
+        long from = ((Number) e.outVertex().id()).longValue();
+        long to = ((Number) e.inVertex().id()).longValue();
+        if (otherVisited.contains(to)) {
+          if (meets.add(to)) {
+            meetList.add(to);
+          }
+          parents.computeIfAbsent(to, k -> new ArrayList<>()).add(from);
+        } else if (visited.add(to)) {
+          nextSet.add(to);
+          next.add(to);
+          parents.computeIfAbsent(to, k -> new ArrayList<>()).add(from);
+        } else if (nextSet.contains(to)) {
+          // Another shortest path to a person first reached on this level.
+          parents.get(to).add(from);
+        }
+      }
+
+      if (!meetList.isEmpty()) {
+        break;
+      }
+
+      long[] nextFrontier = new long[next.size()];
+      for (int i = 0; i < nextFrontier.length; i++) {
+        nextFrontier[i] = next.get(i);
+      }
+      if (fromSource) {
+        sourceFrontier = nextFrontier;
+      } else {
+        targetFrontier = nextFrontier;
+      }
+    }
+
+    for (long meet : meetList) {
+      List<long[]> toMeet = new ArrayList<>();
+      enumeratePaths(sourceParents, source, meet, new ArrayList<>(), toMeet);
+      List<long[]> fromMeet = new ArrayList<>();
+      enumeratePaths(targetParents, target, meet, new ArrayList<>(), fromMeet);
+      for (long[] head : toMeet) {
+        for (long[] tail : fromMeet) {
+          // head runs from source to meet, tail from target to meet.
+          long[] path = Arrays.copyOf(head, head.length + tail.length - 1);
+          for (int i = 0; i < tail.length - 1; i++) {
+            path[head.length + i] = tail[tail.length - 2 - i];
+          }
+          paths.add(path);
+        }
+      }
+    }
+
+    return paths;
+  }
+
+  /*
+   * Adds each path from root to v in the predecessor DAG to paths, as an
+   * array running from root to v. suffix holds the path from v onwards, in
+   * reverse.
+   */
+  private static void enumeratePaths(Map<Long, List<Long>> parents, long root,
+                                     long v, List<Long> suffix, List<long[]> paths) {
+    suffix.add(v);
+    if (v == root) {
+      long[] path = new long[suffix.size()];
+      for (int i = 0; i < path.length; i++) {
+        path[i] = suffix.get(path.length - 1 - i);
+      }
+      paths.add(path);
+    } else {
+      for (long parent : parents.get(v)) {
+        enumeratePaths(parents, root, parent, suffix, paths);
+      }
+    }
+    suffix.remove(suffix.size() - 1);
+  }
+
+  /*
+   * Returns the interaction weight between two persons: 1.0 for every
+   * Comment by one of them replying to a Post by the other, and 0.5 for
+   * every Comment by one of them replying to a Comment by the other.
+   */
+  private static double interactionWeight(GraphTraversalSource g,
+                                          long person1, long person2) {
+    double weight = 0.0;
+    long[][] directions = {{person1, person2}, {person2, person1}};
+    for (long[] direction : directions) {
+      Iterator<String> parentLabels = g.V(direction[0]).in("hasCreator")
+          .hasLabel(Entity.COMMENT.getName()).out("replyOf").as("parent")
+          .out("hasCreator").hasId(direction[1]).select("parent").label();
+      while (parentLabels.hasNext()) {
+        if (parentLabels.next().equals(Entity.POST.getName())) {
+          weight += 1.0;
+        } else {
+          weight += 0.5;
+        }
+      }
+    }
+    return weight;
+  }
+
+  /*
+   * A message considered for a recent messages result, with the values it is
+   * ranked by.
+   */
+  private static class RecentMessage {
+
+    final long creationDate;
+    final long messageId;
+    final Vertex message;
+    final Vertex creator;
+
+    RecentMessage(long creationDate, long messageId, Vertex message,
+                  Vertex creator) {
+      this.creationDate = creationDate;
+      this.messageId = messageId;
+      this.message = message;
+      this.creator = creator;
+    }
+
+    /*
+     * Newer messages rank first, then those with the smaller ID.
+     */
+    boolean ranksBefore(RecentMessage other) {
+      if (creationDate != other.creationDate) {
+        return creationDate > other.creationDate;
+      }
+      return messageId < other.messageId;
+    }
+  }
+
+  /*
+   * Returns the limit most recent messages created by the given persons on or
+   * before maxDate, newest first and then by ascending message ID.
+   *
+   * Streams each creator's messages through a bounded heap whose head is the
+   * lowest ranked message kept so far, so only limit messages are held at a
+   * time. With edge indexes each creator contributes just its newest edges
+   * that could still make the cut, read in index order.
+   */
+  private static List<RecentMessage> recentMessages(GraphTraversalSource g,
+                                                    DbConnectionState dbConnectionState, Iterable<Vertex> creators,
+                                                    long maxDate, int limit) {
+    PriorityQueue<RecentMessage> heap = new PriorityQueue<>(limit + 1,
+        (a, b) -> a.ranksBefore(b) ? 1 : (b.ranksBefore(a) ? -1 : 0));
+    boolean indexed = edgeIndexes(dbConnectionState);
+
+    for (Vertex creator : creators) {
+      long minDate = Long.MIN_VALUE;
+      if (heap.size() == limit) {
+        minDate = heap.peek().creationDate;
+      }
+
+      Iterator<Edge> edges;
+      if (indexed) {
+        edges = newestEdges(g, creator, Direction.IN, "hasCreator", minDate,
+            maxDate, limit).iterator();
+      } else {
+        edges = creator.edges(Direction.IN, "hasCreator");
+      }
+
+      while (edges.hasNext()) {
+        Edge e = edges.next();
+        Vertex message = e.outVertex();
+        long creationDate = longValue(indexed
+            ? e.value("creationDate")
+            : message.value("creationDate"));
+        if (creationDate > maxDate) {
+          continue;
+        }
+        if (heap.size() == limit
+            && creationDate < heap.peek().creationDate) {
+          continue;
+        }
+
+        offerRecentMessage(heap, new RecentMessage(creationDate,
+            getSNBId(dbConnectionState, message), message, creator), limit);
+      }
+    }
+
+    return sortedRecentMessages(heap);
+  }
+
+  /*
+   * Adds the candidate to a bounded heap of recent messages, evicting the
+   * lowest ranked message if the heap already holds limit messages.
+   */
+  private static void offerRecentMessage(PriorityQueue<RecentMessage> heap,
+                                         RecentMessage candidate, int limit) {
+    if (heap.size() < limit) {
+      heap.add(candidate);
+    } else if (candidate.ranksBefore(heap.peek())) {
+      heap.poll();
+      heap.add(candidate);
+    }
+  }
+
+  private static List<RecentMessage> sortedRecentMessages(
+      PriorityQueue<RecentMessage> heap) {
+    List<RecentMessage> result = new ArrayList<>(heap);
+    result.sort((a, b) -> a.ranksBefore(b) ? -1 : (b.ranksBefore(a) ? 1 : 0));
+    return result;
+  }
+
+  /*
+   * Returns the limit most recent direct replies to messages created by the
+   * given person, newest first and then by ascending reply ID.
+   *
+   * Replies are streamed through a bounded heap. With edge indexes the
+   * replies to each message are read newest first, and only those no older
+   * than the oldest reply in a full heap, so the index read for a message
+   * returns little once the heap has filled. Otherwise every reply is read.
+   */
+  private static List<RecentMessage> recentReplies(GraphTraversalSource g,
+                                                   DbConnectionState dbConnectionState, Vertex person, int limit) {
+    PriorityQueue<RecentMessage> heap = new PriorityQueue<>(limit + 1,
+        (a, b) -> a.ranksBefore(b) ? 1 : (b.ranksBefore(a) ? -1 : 0));
+    if (limit == 0) {
+      return new ArrayList<>();
+    }
+
+    Iterator<Edge> created = person.edges(Direction.IN, "hasCreator");
+    if (edgeIndexes(dbConnectionState)) {
+      while (created.hasNext()) {
+        long minDate = Long.MIN_VALUE;
+        if (heap.size() == limit) {
+          minDate = heap.peek().creationDate;
+        }
+
+        // Newest first, so the rest are too old once one is.
+        for (Edge e : newestEdges(g, created.next().outVertex(),
+            Direction.IN, "replyOf", minDate, Long.MAX_VALUE, limit)) {
+          long creationDate = longValue(e.value("creationDate"));
+          if (heap.size() == limit
+              && creationDate < heap.peek().creationDate) {
+            break;
+          }
+          Vertex reply = e.outVertex();
+          offerRecentMessage(heap, new RecentMessage(creationDate,
+              getSNBId(dbConnectionState, reply), reply, null), limit);
+        }
+      }
+    } else {
+      while (created.hasNext()) {
+        Iterator<Edge> replies =
+            created.next().outVertex().edges(Direction.IN, "replyOf");
+        while (replies.hasNext()) {
+          Vertex reply = replies.next().outVertex();
+          long creationDate = longValue(reply.value("creationDate"));
+          if (heap.size() == limit
+              && creationDate < heap.peek().creationDate) {
+            continue;
+          }
+          offerRecentMessage(heap, new RecentMessage(creationDate,
+              getSNBId(dbConnectionState, reply), reply, null), limit);
+        }
+      }
+    }
+
+    return sortedRecentMessages(heap);
+  }
+
+  /*
+   * Returns the given TitanDB vertex IDs as arguments for g.V().
+   */
+  private static Object[] vertexIds(long[] ids) {
+    Object[] boxed = new Object[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      boxed[i] = ids[i];
+    }
+    return boxed;
+  }
+
+  /*
+   * Returns the friends and friends of friends of the given person, from the
+   * neighbourhood cache if it holds them.
+   */
+  private static KnowsNeighbourhood getKnowsNeighbourhood(
+      GraphTraversalSource g, DbConnectionState dbConnectionState,
+      long personId, Vertex person) {
+    KnowsNeighbourhood.Cache cache =
+        ((TitanDbConnectionState) dbConnectionState).neighbourhoodCache();
+    if (cache != null) {
+      KnowsNeighbourhood neighbourhood = cache.get(personId);
+      if (neighbourhood != null) {
+        return neighbourhood;
+      }
+    }
+
+    KnowsNeighbourhood neighbourhood = KnowsNeighbourhood.compute(g, person);
+    if (cache != null) {
+      cache.put(personId, neighbourhood);
+    }
+    return neighbourhood;
+  }
+
+  /*
+   * The most recent like of each liker seen so far, as parallel primitive
+   * arrays indexed through a map from liker vertex ID to slot. Of likes made
+   * at the same time, the one of the message with the smaller ID is kept.
+   */
+  private static class LatestLikes {
+
+    final LongIntHashMap slots = new LongIntHashMap();
+    long[] likers = new long[64];
+    long[] likeDates = new long[64];
+    long[] messageIds = new long[64];
+    long[] messageVertexIds = new long[64];
+    long[] messageDates = new long[64];
+    int size = 0;
+
+    void offer(long liker, long likeDate, long messageId, long messageVertexId,
+               long messageDate) {
+      int slot = slots.get(liker, -1);
+      if (slot < 0) {
+        if (size == likers.length) {
+          likers = Arrays.copyOf(likers, size * 2);
+          likeDates = Arrays.copyOf(likeDates, size * 2);
+          messageIds = Arrays.copyOf(messageIds, size * 2);
+          messageVertexIds = Arrays.copyOf(messageVertexIds, size * 2);
+          messageDates = Arrays.copyOf(messageDates, size * 2);
+        }
+        slot = size++;
+        slots.put(liker, slot);
+        likers[slot] = liker;
+      } else if (likeDate < likeDates[slot]
+          || (likeDate == likeDates[slot] && messageId >= messageIds[slot])) {
+        return;
+      }
+      likeDates[slot] = likeDate;
+      messageIds[slot] = messageId;
+      messageVertexIds[slot] = messageVertexId;
+      messageDates[slot] = messageDate;
+    }
+  }
+
+  /*
+   * Returns the vertices of the given type with the given name, found on the
+   * byName index.
+   */
+  private static List<Vertex> getVerticesByName(GraphTraversalSource g,
+                                                Entity type, String name) {
+    return g.V().has("name", name).hasLabel(type.getName()).toList();
+  }
+
+  /*
+   * Returns the limit tags with the highest counts, as tag name and count
+   * pairs, by descending count and then ascending name. Names are only read
+   * for the tags that can make the cut.
+   */
+  private static List<Map.Entry<String, Integer>> topTags(
+      GraphTraversalSource g, LongIntHashMap counts, LongHashSet excluded,
+      int limit) {
+    List<long[]> tagCounts = new ArrayList<>(counts.size());
+    counts.forEach((tag, count) -> {
+      if (excluded == null || !excluded.contains(tag)) {
+        tagCounts.add(new long[] {tag, count});
+      }
+    });
+    if (tagCounts.isEmpty() || limit == 0) {
+      return new ArrayList<>();
+    }
+    tagCounts.sort((a, b) -> Long.compare(b[1], a[1]));
+
+    // Tags tied with the last one that fits are ranked by name.
+    long minCount =
+        tagCounts.get(Math.min(limit, tagCounts.size()) - 1)[1];
+    List<Object> candidates = new ArrayList<>();
+    for (long[] tagCount : tagCounts) {
+      if (tagCount[1] < minCount) {
+        break;
+      }
+      candidates.add(tagCount[0]);
+    }
+
+    Map<Long, String> names = new HashMap<>(candidates.size());
+    g.V(candidates.toArray()).forEachRemaining((v) -> {
+      names.put(((Number) v.id()).longValue(), v.<String>value("name"));
+    });
+
+    List<Map.Entry<String, Integer>> result =
+        new ArrayList<>(candidates.size());
+    for (int i = 0; i < candidates.size(); i++) {
+      long[] tagCount = tagCounts.get(i);
+      result.add(new AbstractMap.SimpleImmutableEntry<>(
+          names.get(tagCount[0]), (int) tagCount[1]));
+    }
+    result.sort((a, b) -> {
+      if (!a.getValue().equals(b.getValue())) {
+        return Integer.compare(b.getValue(), a.getValue());
+      }
+      return a.getKey().compareTo(b.getKey());
+    });
+    return result.subList(0, Math.min(limit, result.size()));
+  }
+
+  /*
+   * Returns the content of the given message, or its image file for Posts
+   * without content.
+   */
+  private static String messageContent(Vertex message) {
+    String content = message.<String>property("content").orElse("");
+    if (content.length() == 0) {
+      content = message.<String>property("imageFile").orElse("");
+    }
+    return content;
+  }
+
+  /*
+   * Returns the value of a date or numeric property as a long. Graphs loaded
+   * with a typed schema store these as Long or Integer values, others as
+   * decimal Strings.
+   */
+  private static long longValue(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    return Long.parseLong((String) value);
+  }
+
+  private static int intValue(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    }
+    return Integer.parseInt((String) value);
+  }
+
+  /*
+   * Returns the given date encoded the way the graph behind the connection
+   * stores dates.
+   */
+  private static Object dateValue(DbConnectionState dbConnectionState,
+                                  Date date) {
+    if (((TitanDbConnectionState) dbConnectionState).typedSchema()) {
+      return date.getTime();
+    }
+    return String.valueOf(date.getTime());
+  }
+
+  /*
+   * Returns the given number encoded the way the graph behind the connection
+   * stores Integer properties.
+   */
+  private static Object intPropertyValue(DbConnectionState dbConnectionState,
+                                         int value) {
+    if (((TitanDbConnectionState) dbConnectionState).typedSchema()) {
+      return value;
+    }
+    return String.valueOf(value);
+  }
+
   @Override
   protected void onInit(Map<String, String> properties,
                         LoggingService loggingService) throws DbException {
@@ -103,6 +859,19 @@ public class TitanDb extends Db {
      * Register operation handlers with the benchmark.
      */
     registerOperationHandler(LdbcQuery1.class, LdbcQuery1Handler.class);
+    registerOperationHandler(LdbcQuery2.class, LdbcQuery2Handler.class);
+    registerOperationHandler(LdbcQuery3.class, LdbcQuery3Handler.class);
+    registerOperationHandler(LdbcQuery4.class, LdbcQuery4Handler.class);
+    registerOperationHandler(LdbcQuery5.class, LdbcQuery5Handler.class);
+    registerOperationHandler(LdbcQuery6.class, LdbcQuery6Handler.class);
+    registerOperationHandler(LdbcQuery7.class, LdbcQuery7Handler.class);
+    registerOperationHandler(LdbcQuery8.class, LdbcQuery8Handler.class);
+    registerOperationHandler(LdbcQuery9.class, LdbcQuery9Handler.class);
+    registerOperationHandler(LdbcQuery10.class, LdbcQuery10Handler.class);
+    registerOperationHandler(LdbcQuery11.class, LdbcQuery11Handler.class);
+    registerOperationHandler(LdbcQuery12.class, LdbcQuery12Handler.class);
+    registerOperationHandler(LdbcQuery13.class, LdbcQuery13Handler.class);
+    registerOperationHandler(LdbcQuery14.class, LdbcQuery14Handler.class);
 
     registerOperationHandler(LdbcShortQuery1PersonProfile.class,
         LdbcShortQuery1PersonProfileHandler.class);
@@ -191,8 +960,10 @@ public class TitanDb extends Db {
         List<Long> distList = new ArrayList<>(resultLimit);
         List<Vertex> matchList = new ArrayList<>(resultLimit);
 
+        Vertex root = getVertex(g, dbConnectionState, Entity.PERSON, personId);
+
         g.withSideEffect("x", matchList).withSideEffect("d", distList)
-            .V().has("iid", makeIid(Entity.PERSON, personId))
+            .V(root)
             .aggregate("done").out("knows")
             .where(without("done")).dedup().fold().sideEffect(
             unfold().has("firstName", firstName).order()
@@ -219,14 +990,9 @@ public class TitanDb extends Db {
         ).select("x").count(Scope.local)
             .store("d").iterate();
 
-        List<String> matchListIds = new ArrayList<>(matchList.size());
-        matchList.forEach((v) -> {
-          matchListIds.add(v.<String>property("iid").value());
-        });
-
         Map<Vertex, Map<String, List<String>>> propertiesMap =
             new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .<List<String>>valueMap().as("props")
             .select("person", "props")
             .forEachRemaining(map -> {
@@ -235,7 +1001,7 @@ public class TitanDb extends Db {
             });
 
         Map<Vertex, String> placeNameMap = new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .out("isLocatedIn")
             .<String>values("name")
             .as("placeName")
@@ -247,7 +1013,7 @@ public class TitanDb extends Db {
 
         Map<Vertex, List<List<Object>>> universityInfoMap =
             new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .outE("studyAt").as("classYear")
             .inV().as("universityName")
             .out("isLocatedIn").as("cityName")
@@ -257,7 +1023,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("universityName"));
-              tuple.add(Integer.decode((String) map.get("classYear")));
+              tuple.add(intValue(map.get("classYear")));
               tuple.add(map.get("cityName"));
               if (universityInfoMap.containsKey(v)) {
                 universityInfoMap.get(v).add(tuple);
@@ -270,7 +1036,7 @@ public class TitanDb extends Db {
 
         Map<Vertex, List<List<Object>>> companyInfoMap =
             new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .outE("workAt").as("workFrom")
             .inV().as("companyName")
             .out("isLocatedIn").as("cityName")
@@ -280,7 +1046,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("companyName"));
-              tuple.add(Integer.decode((String) map.get("workFrom")));
+              tuple.add(intValue(map.get("workFrom")));
               tuple.add(map.get("cityName"));
               if (companyInfoMap.containsKey(v)) {
                 companyInfoMap.get(v).add(tuple);
@@ -316,11 +1082,11 @@ public class TitanDb extends Db {
             companyInfo = new ArrayList<>();
           }
           result.add(new LdbcQuery1Result(
-              getSNBId(match),
+              getSNBId(dbConnectionState, match),
               properties.get("lastName").get(0),
               distance,
-              Long.decode(properties.get("birthday").get(0)),
-              Long.decode(properties.get("creationDate").get(0)),
+              longValue(((List<?>) properties.get("birthday")).get(0)),
+              longValue(((List<?>) properties.get("creationDate")).get(0)),
               properties.get("gender").get(0),
               properties.get("browserUsed").get(0),
               properties.get("locationIP").get(0),
@@ -364,8 +1130,7 @@ public class TitanDb extends Db {
         List<Integer> distList = new ArrayList<>(resultLimit);
         List<Vertex> matchList = new ArrayList<>(resultLimit);
 
-        Vertex root = g.V().has("iid",
-            makeIid(Entity.PERSON, personId)).next();
+        Vertex root = getVertex(g, dbConnectionState, Entity.PERSON, personId);
 
         List<Vertex> l1Friends = new ArrayList<>();
         g.V(root).out("knows")
@@ -455,7 +1220,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("universityName"));
-              tuple.add(Integer.decode((String) map.get("classYear")));
+              tuple.add(intValue(map.get("classYear")));
               tuple.add(map.get("cityName"));
               if (universityInfoMap.containsKey(v)) {
                 universityInfoMap.get(v).add(tuple);
@@ -478,7 +1243,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("companyName"));
-              tuple.add(Integer.decode((String) map.get("workFrom")));
+              tuple.add(intValue(map.get("workFrom")));
               tuple.add(map.get("cityName"));
               if (companyInfoMap.containsKey(v)) {
                 companyInfoMap.get(v).add(tuple);
@@ -512,11 +1277,11 @@ public class TitanDb extends Db {
             companyInfo = new ArrayList<>();
           }
           result.add(new LdbcQuery1Result(
-              getSNBId(match),
+              getSNBId(dbConnectionState, match),
               properties.get("lastName").get(0),
               distList.get(i),
-              Long.decode(properties.get("birthday").get(0)),
-              Long.decode(properties.get("creationDate").get(0)),
+              longValue(((List<?>) properties.get("birthday")).get(0)),
+              longValue(((List<?>) properties.get("creationDate")).get(0)),
               properties.get("gender").get(0),
               properties.get("browserUsed").get(0),
               properties.get("locationIP").get(0),
@@ -556,8 +1321,8 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex rootPerson = g.V().has("iid",
-            makeIid(Entity.PERSON, personId)).next();
+        Vertex rootPerson = getVertex(g, dbConnectionState, Entity.PERSON,
+            personId);
 
         List<Vertex> friends = new ArrayList<>();
         List<Integer> levelIndices = new ArrayList<>();
@@ -620,12 +1385,13 @@ public class TitanDb extends Db {
             if (lastNameCompareVal != 0) {
               return lastNameCompareVal;
             } else {
-              return getSNBId(v1).compareTo(getSNBId(v2));
+              return getSNBId(dbConnectionState, v1)
+                  .compareTo(getSNBId(dbConnectionState, v2));
             }
           });
 
           for (Vertex f : equidistantVertices) {
-            long friendId = getSNBId(f);
+            long friendId = getSNBId(dbConnectionState, f);
             String friendLastName = null;
             int distanceFromPerson = level;
             long friendBirthday = 0;
@@ -640,34 +1406,34 @@ public class TitanDb extends Db {
             List<List<Object>> friendCompanies = new ArrayList<>();
 
             // Extract normal properties.
-            Iterator<VertexProperty<String>> props = f.properties();
+            Iterator<VertexProperty<Object>> props = f.properties();
             while (props.hasNext()) {
-              VertexProperty<String> prop = props.next();
+              VertexProperty<Object> prop = props.next();
 
               switch (prop.key()) {
                 case "lastName":
-                  friendLastName = prop.value();
+                  friendLastName = (String) prop.value();
                   break;
                 case "birthday":
-                  friendBirthday = Long.decode(prop.value());
+                  friendBirthday = longValue(prop.value());
                   break;
                 case "creationDate":
-                  friendCreationDate = Long.decode(prop.value());
+                  friendCreationDate = longValue(prop.value());
                   break;
                 case "gender":
-                  friendGender = prop.value();
+                  friendGender = (String) prop.value();
                   break;
                 case "browserUsed":
-                  friendBrowserUsed = prop.value();
+                  friendBrowserUsed = (String) prop.value();
                   break;
                 case "locationIP":
-                  friendLocationIp = prop.value();
+                  friendLocationIp = (String) prop.value();
                   break;
                 case "email":
-                  friendEmails.add(prop.value());
+                  friendEmails.add((String) prop.value());
                   break;
                 case "language":
-                  friendLanguages.add(prop.value());
+                  friendLanguages.add((String) prop.value());
                   break;
               }
             }
@@ -679,8 +1445,7 @@ public class TitanDb extends Db {
 
             // Fetch universities studied at
             f.edges(Direction.OUT, "studyAt").forEachRemaining((e) -> {
-              Integer classYear =
-                  Integer.decode(e.<String>property("classYear").value());
+              Integer classYear = intValue(e.property("classYear").value());
               Vertex organization = e.inVertex();
               String orgName = organization.<String>property("name").value();
               Vertex place = organization.edges(Direction.OUT, "isLocatedIn")
@@ -697,8 +1462,7 @@ public class TitanDb extends Db {
 
             // Fetch companies worked at
             f.edges(Direction.OUT, "workAt").forEachRemaining((e) -> {
-              Integer workFrom =
-                  Integer.decode(e.<String>property("workFrom").value());
+              Integer workFrom = intValue(e.property("workFrom").value());
               Vertex company = e.inVertex();
               String compName = company.<String>property("name").value();
               Vertex place = company.edges(Direction.OUT, "isLocatedIn")
@@ -776,7 +1540,43 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery2 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        List<Vertex> friends = g.V(person).out("knows").toList();
+
+        List<LdbcQuery2Result> result = new ArrayList<>();
+        for (RecentMessage m : recentMessages(g, dbConnectionState, friends,
+            operation.maxDate().getTime(), operation.limit())) {
+          PersonSummary creator = getPersonSummary(dbConnectionState,
+              m.creator);
+          result.add(new LdbcQuery2Result(
+              creator.snbId(),
+              creator.firstName(),
+              creator.lastName(),
+              m.messageId,
+              messageContent(m.message),
+              m.creationDate));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -801,7 +1601,114 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery3 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        KnowsNeighbourhood neighbourhood = getKnowsNeighbourhood(g,
+            dbConnectionState, operation.personId(), person);
+
+        String countryX = operation.countryXName();
+        String countryY = operation.countryYName();
+        long startDate = operation.startDate().getTime();
+        long endDate = startDate
+            + TimeUnit.DAYS.toMillis(operation.durationDays());
+
+        /*
+         * Countries are told apart by name, which is read once per place
+         * vertex met rather than looked up on an index.
+         */
+        Map<Object, String> placeNames = new HashMap<>();
+        Function<Vertex, String> placeName = (place) -> placeNames
+            .computeIfAbsent(place.id(),
+                (id) -> place.<String>value("name"));
+
+        // Persons located in country X or Y are not foreign to them.
+        List<Vertex> candidates = new ArrayList<>();
+        if (neighbourhood.size() > 0) {
+          g.V(vertexIds(neighbourhood.all())).as("person")
+              .out("isLocatedIn").out("isPartOf").as("country")
+              .select("person", "country")
+              .forEachRemaining((map) -> {
+                String country = placeName.apply((Vertex) map.get("country"));
+                if (!country.equals(countryX) && !country.equals(countryY)) {
+                  candidates.add((Vertex) map.get("person"));
+                }
+              });
+        }
+
+        boolean indexed = edgeIndexes(dbConnectionState);
+        List<LdbcQuery3Result> result = new ArrayList<>();
+        for (Vertex candidate : candidates) {
+          Iterator<Edge> edges;
+          if (indexed) {
+            edges = g.V(candidate).inE("hasCreator")
+                .has("creationDate", gte(startDate))
+                .has("creationDate", lt(endDate));
+          } else {
+            edges = candidate.edges(Direction.IN, "hasCreator");
+          }
+
+          long xCount = 0;
+          long yCount = 0;
+          while (edges.hasNext()) {
+            Vertex message = edges.next().outVertex();
+            if (!indexed) {
+              long creationDate =
+                  longValue(message.property("creationDate").value());
+              if (creationDate < startDate || creationDate >= endDate) {
+                continue;
+              }
+            }
+            String country = placeName.apply(
+                message.edges(Direction.OUT, "isLocatedIn").next().inVertex());
+            if (country.equals(countryX)) {
+              xCount++;
+            } else if (country.equals(countryY)) {
+              yCount++;
+            }
+          }
+
+          if (xCount > 0 && yCount > 0) {
+            PersonSummary summary =
+                getPersonSummary(dbConnectionState, candidate);
+            result.add(new LdbcQuery3Result(
+                summary.snbId(),
+                summary.firstName(),
+                summary.lastName(),
+                xCount,
+                yCount,
+                xCount + yCount));
+          }
+        }
 
+        result.sort((r1, r2) -> {
+          if (r1.count() != r2.count()) {
+            return Long.compare(r2.count(), r1.count());
+          }
+          return Long.compare(r1.personId(), r2.personId());
+        });
+        if (result.size() > operation.limit()) {
+          result = new ArrayList<>(result.subList(0, operation.limit()));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -825,7 +1732,79 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery4 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+
+        long startDate = operation.startDate().getTime();
+        long endDate = startDate
+            + TimeUnit.DAYS.toMillis(operation.durationDays());
+        boolean indexed = edgeIndexes(dbConnectionState);
+
+        // Post counts of tags in the interval, and tags seen before it. Only
+        // posts of friends count, so friends of friends are not expanded.
+        LongIntHashMap counts = new LongIntHashMap();
+        LongHashSet seenBefore = new LongHashSet();
+        Iterator<Object> friends = g.V(person).out("knows").id();
+        while (friends.hasNext()) {
+          long friend = ((Number) friends.next()).longValue();
+          Iterator<Edge> edges;
+          if (indexed) {
+            edges = g.V(friend).inE("hasCreator")
+                .has("creationDate", lt(endDate));
+          } else {
+            edges = g.V(friend).inE("hasCreator");
+          }
 
+          while (edges.hasNext()) {
+            Edge e = edges.next();
+            Vertex message = e.outVertex();
+            if (!message.label().equals(Entity.POST.getName())) {
+              continue;
+            }
+            long creationDate = longValue(indexed
+                ? e.value("creationDate")
+                : message.value("creationDate"));
+            if (creationDate >= endDate) {
+              continue;
+            }
+
+            Iterator<Edge> tags = message.edges(Direction.OUT, "hasTag");
+            while (tags.hasNext()) {
+              long tag = ((Number) tags.next().inVertex().id()).longValue();
+              if (creationDate < startDate) {
+                seenBefore.add(tag);
+              } else {
+                counts.addTo(tag, 1);
+              }
+            }
+          }
+        }
+
+        List<LdbcQuery4Result> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> tag :
+            topTags(g, counts, seenBefore, operation.limit())) {
+          result.add(new LdbcQuery4Result(tag.getKey(), tag.getValue()));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -849,7 +1828,134 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery5 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        KnowsNeighbourhood neighbourhood = getKnowsNeighbourhood(g,
+            dbConnectionState, operation.personId(), person);
+
+        long minDate = operation.minDate().getTime();
+        boolean typed =
+            ((TitanDbConnectionState) dbConnectionState).typedSchema();
+
+        /*
+         * The persons that joined each forum after the given date. The
+         * joinDate is read off the hasMember edge, and the forum is only known
+         * by its vertex ID, so forums are not loaded here.
+         */
+        Map<Long, LongHashSet> forumMembers = new HashMap<>();
+        long[] members = neighbourhood.all();
+        for (long member : members) {
+          Iterator<Edge> edges;
+          if (typed) {
+            edges = g.V(member).inE("hasMember").has("joinDate", gt(minDate));
+          } else {
+            edges = g.V(member).inE("hasMember");
+          }
+
+          while (edges.hasNext()) {
+            Edge e = edges.next();
+            if (!typed && longValue(e.value("joinDate")) <= minDate) {
+              continue;
+            }
+            long forum = ((Number) e.outVertex().id()).longValue();
+            LongHashSet joined = forumMembers.get(forum);
+            if (joined == null) {
+              joined = new LongHashSet();
+              forumMembers.put(forum, joined);
+            }
+            joined.add(member);
+          }
+        }
+
+        /*
+         * Count posts starting from their creators rather than from the
+         * forums, which may hold far more posts by others. A post counts if
+         * its creator is among the qualifying members of its forum.
+         */
+        LongIntHashMap counts = new LongIntHashMap();
+        for (Long forum : forumMembers.keySet()) {
+          counts.put(forum, 0);
+        }
+        for (long member : members) {
+          Iterator<Vertex> posts =
+              g.V(member).in("hasCreator").hasLabel(Entity.POST.getName());
+          while (posts.hasNext()) {
+            Iterator<Edge> containers =
+                posts.next().edges(Direction.IN, "containerOf");
+            while (containers.hasNext()) {
+              long forum =
+                  ((Number) containers.next().outVertex().id()).longValue();
+              LongHashSet joined = forumMembers.get(forum);
+              if (joined != null && joined.contains(member)) {
+                counts.addTo(forum, 1);
+              }
+            }
+          }
+        }
 
+        /*
+         * Only forums tied with or above the last one that fits are loaded,
+         * as ties are ranked by forum ID.
+         */
+        List<long[]> forumCounts = new ArrayList<>(counts.size());
+        counts.forEach((forum, count) -> {
+          forumCounts.add(new long[] {forum, count});
+        });
+        forumCounts.sort((a, b) -> Long.compare(b[1], a[1]));
+
+        List<Object> candidateIds = new ArrayList<>();
+        if (!forumCounts.isEmpty() && operation.limit() > 0) {
+          long minCount = forumCounts.get(
+              Math.min(operation.limit(), forumCounts.size()) - 1)[1];
+          for (long[] forumCount : forumCounts) {
+            if (forumCount[1] < minCount) {
+              break;
+            }
+            candidateIds.add(forumCount[0]);
+          }
+        }
+
+        List<Object[]> candidates = new ArrayList<>(candidateIds.size());
+        if (!candidateIds.isEmpty()) {
+          g.V(candidateIds.toArray()).forEachRemaining((forum) -> {
+            long forumId = ((Number) forum.id()).longValue();
+            candidates.add(new Object[] {getSNBId(dbConnectionState, forum),
+                forum.<String>value("title"), counts.get(forumId, 0)});
+          });
+        }
+        candidates.sort((a, b) -> {
+          if (!a[2].equals(b[2])) {
+            return Integer.compare((Integer) b[2], (Integer) a[2]);
+          }
+          return Long.compare((Long) a[0], (Long) b[0]);
+        });
+
+        List<LdbcQuery5Result> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(operation.limit(), candidates.size());
+            i++) {
+          Object[] forum = candidates.get(i);
+          result.add(new LdbcQuery5Result((String) forum[1], (Integer) forum[2]));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -872,7 +1978,75 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery6 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        KnowsNeighbourhood neighbourhood = getKnowsNeighbourhood(g,
+            dbConnectionState, operation.personId(), person);
+
+        LongHashSet givenTags = new LongHashSet();
+        for (Vertex tag : getVerticesByName(g, Entity.TAG,
+            operation.tagName())) {
+          givenTags.add(((Number) tag.id()).longValue());
+        }
 
+        // Counts of the posts each other tag shares with the given tag.
+        LongIntHashMap counts = new LongIntHashMap();
+        long[] postTags = new long[16];
+        if (!givenTags.isEmpty()) {
+          for (long creator : neighbourhood.all()) {
+            Iterator<Vertex> messages =
+                g.V(creator).in("hasCreator").hasLabel(Entity.POST.getName());
+            while (messages.hasNext()) {
+              int numTags = 0;
+              boolean hasGivenTag = false;
+              Iterator<Edge> tags =
+                  messages.next().edges(Direction.OUT, "hasTag");
+              while (tags.hasNext()) {
+                long tag = ((Number) tags.next().inVertex().id()).longValue();
+                if (givenTags.contains(tag)) {
+                  hasGivenTag = true;
+                } else {
+                  if (numTags == postTags.length) {
+                    postTags = Arrays.copyOf(postTags, numTags * 2);
+                  }
+                  postTags[numTags++] = tag;
+                }
+              }
+
+              if (hasGivenTag) {
+                for (int i = 0; i < numTags; i++) {
+                  counts.addTo(postTags[i], 1);
+                }
+              }
+            }
+          }
+        }
+
+        List<LdbcQuery6Result> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> tag :
+            topTags(g, counts, null, operation.limit())) {
+          result.add(new LdbcQuery6Result(tag.getKey(), tag.getValue()));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -891,14 +2065,121 @@ public class TitanDb extends Db {
   public static class LdbcQuery7Handler
       implements OperationHandler<LdbcQuery7, DbConnectionState> {
 
-    final static Logger logger =
-        LoggerFactory.getLogger(LdbcQuery7Handler.class);
+    final static Logger logger =
+        LoggerFactory.getLogger(LdbcQuery7Handler.class);
+
+    @Override
+    public void executeOperation(final LdbcQuery7 operation,
+                                 DbConnectionState dbConnectionState,
+                                 ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+
+        LongHashSet friends = new LongHashSet();
+        g.V(person).out("knows").id().forEachRemaining((id) -> {
+          friends.add(((Number) id).longValue());
+        });
+
+        // One pass over the likes of every message, keeping one per liker.
+        LatestLikes latest = new LatestLikes();
+        Iterator<Vertex> messages = g.V(person).in("hasCreator");
+        while (messages.hasNext()) {
+          Vertex message = messages.next();
+          Iterator<Edge> likes = message.edges(Direction.IN, "likes");
+          if (!likes.hasNext()) {
+            continue;
+          }
+
+          long messageId = getSNBId(dbConnectionState, message);
+          long messageVertexId = ((Number) message.id()).longValue();
+          long messageDate = longValue(message.value("creationDate"));
+          while (likes.hasNext()) {
+            Edge e = likes.next();
+            latest.offer(((Number) e.outVertex().id()).longValue(),
+                longValue(e.value("creationDate")), messageId,
+                messageVertexId, messageDate);
+          }
+        }
+
+        /*
+         * Likes tied with the last one that fits are ranked by liker ID, so
+         * only likers at or above that like's date are read.
+         */
+        Integer[] slots = new Integer[latest.size];
+        for (int i = 0; i < latest.size; i++) {
+          slots[i] = i;
+        }
+        Arrays.sort(slots, (a, b) ->
+            Long.compare(latest.likeDates[b], latest.likeDates[a]));
+
+        int numCandidates = 0;
+        if (slots.length > 0 && operation.limit() > 0) {
+          long minDate = latest.likeDates[
+              slots[Math.min(operation.limit(), slots.length) - 1]];
+          while (numCandidates < slots.length
+              && latest.likeDates[slots[numCandidates]] >= minDate) {
+            numCandidates++;
+          }
+        }
+
+        Map<Long, PersonSummary> likers = new HashMap<>(numCandidates);
+        if (numCandidates > 0) {
+          Object[] likerIds = new Object[numCandidates];
+          for (int i = 0; i < numCandidates; i++) {
+            likerIds[i] = latest.likers[slots[i]];
+          }
+          g.V(likerIds).forEachRemaining((v) -> {
+            PersonSummary liker = getPersonSummary(dbConnectionState, v);
+            likers.put(liker.vertexId(), liker);
+          });
+        }
 
-    @Override
-    public void executeOperation(final LdbcQuery7 operation,
-                                 DbConnectionState dbConnectionState,
-                                 ResultReporter resultReporter) throws DbException {
+        Integer[] winners = Arrays.copyOf(slots, numCandidates);
+        Arrays.sort(winners, (a, b) -> {
+          if (latest.likeDates[a] != latest.likeDates[b]) {
+            return Long.compare(latest.likeDates[b], latest.likeDates[a]);
+          }
+          return Long.compare(likers.get(latest.likers[a]).snbId(),
+              likers.get(latest.likers[b]).snbId());
+        });
+
+        List<LdbcQuery7Result> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(operation.limit(), winners.length); i++) {
+          int slot = winners[i];
+          PersonSummary liker = likers.get(latest.likers[slot]);
+          Vertex message = g.V(latest.messageVertexIds[slot]).next();
+          long likeDate = latest.likeDates[slot];
+
+          result.add(new LdbcQuery7Result(
+              liker.snbId(),
+              liker.firstName(),
+              liker.lastName(),
+              likeDate,
+              latest.messageIds[slot],
+              messageContent(message),
+              (int) ((likeDate - latest.messageDates[slot]) / (1000 * 60)),
+              !friends.contains(liker.vertexId())));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -921,7 +2202,44 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery8 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+
+        List<LdbcQuery8Result> result = new ArrayList<>();
+        for (RecentMessage reply : recentReplies(g, dbConnectionState, person,
+            operation.limit())) {
+          PersonSummary creator = getPersonSummary(dbConnectionState,
+              reply.message.edges(Direction.OUT, "hasCreator").next()
+                  .inVertex());
+
+          result.add(new LdbcQuery8Result(
+              creator.snbId(),
+              creator.firstName(),
+              creator.lastName(),
+              reply.creationDate,
+              reply.messageId,
+              messageContent(reply.message)));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -944,7 +2262,50 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery9 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+
+        KnowsNeighbourhood neighbourhood = getKnowsNeighbourhood(g,
+            dbConnectionState, operation.personId(), person);
+        List<Vertex> persons = new ArrayList<>(neighbourhood.size());
+        if (neighbourhood.size() > 0) {
+          persons = g.V(vertexIds(neighbourhood.all())).toList();
+        }
+
+        // Messages must be created strictly before maxDate.
+        List<LdbcQuery9Result> result = new ArrayList<>();
+        for (RecentMessage m : recentMessages(g, dbConnectionState, persons,
+            operation.maxDate().getTime() - 1, operation.limit())) {
+          PersonSummary creator = getPersonSummary(dbConnectionState,
+              m.creator);
+          result.add(new LdbcQuery9Result(
+              creator.snbId(),
+              creator.firstName(),
+              creator.lastName(),
+              m.messageId,
+              messageContent(m.message),
+              m.creationDate));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -976,7 +2337,116 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery10 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        KnowsNeighbourhood neighbourhood = getKnowsNeighbourhood(g,
+            dbConnectionState, operation.personId(), person);
+
+        /*
+         * Filter friends of friends on their birthday before looking at any
+         * of their posts. Birthdays come from the person cache when it holds
+         * the person, so only the birthday is read otherwise.
+         */
+        PersonCache cache =
+            ((TitanDbConnectionState) dbConnectionState).personCache();
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        int month = operation.month();
+        int nextMonth = (month % 12) + 1;
+        List<Vertex> candidates = new ArrayList<>();
+        long[] friendsOfFriends = neighbourhood.friendsOfFriends();
+        if (friendsOfFriends.length > 0) {
+          g.V(vertexIds(friendsOfFriends)).forEachRemaining((v) -> {
+            PersonSummary summary = (cache == null) ? null
+                : cache.getByVertexId(((Number) v.id()).longValue());
+            calendar.setTimeInMillis((summary == null)
+                ? longValue(v.value("birthday"))
+                : summary.birthday());
+            int birthMonth = calendar.get(Calendar.MONTH) + 1;
+            int birthDay = calendar.get(Calendar.DAY_OF_MONTH);
+            if ((birthMonth == month && birthDay >= 21)
+                || (birthMonth == nextMonth && birthDay < 22)) {
+              candidates.add(v);
+            }
+          });
+        }
+
+        LongHashSet interests = new LongHashSet();
+        person.edges(Direction.OUT, "hasInterest").forEachRemaining((e) -> {
+          interests.add(((Number) e.inVertex().id()).longValue());
+        });
+
+        /*
+         * Each candidate's posts are scored by probing the interest set.
+         * Candidates are ranked on score and SNB ID alone; summaries and
+         * cities are read for the winners only.
+         */
+        int[] scores = new int[candidates.size()];
+        long[] snbIds = new long[candidates.size()];
+        List<Integer> ranking = new ArrayList<>(candidates.size());
+        for (int c = 0; c < candidates.size(); c++) {
+          Vertex candidate = candidates.get(c);
+          int score = 0;
+          Iterator<Vertex> posts = g.V(candidate).in("hasCreator")
+              .hasLabel(Entity.POST.getName());
+          while (posts.hasNext()) {
+            boolean common = false;
+            Iterator<Edge> tags = posts.next().edges(Direction.OUT, "hasTag");
+            while (!common && tags.hasNext()) {
+              common = interests.contains(
+                  ((Number) tags.next().inVertex().id()).longValue());
+            }
+            score += common ? 1 : -1;
+          }
+
+          scores[c] = score;
+          snbIds[c] = getSNBId(dbConnectionState, candidate);
+          ranking.add(c);
+        }
+
+        ranking.sort((a, b) -> {
+          if (scores[a] != scores[b]) {
+            return Integer.compare(scores[b], scores[a]);
+          }
+          return Long.compare(snbIds[a], snbIds[b]);
+        });
+
+        List<LdbcQuery10Result> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(operation.limit(), ranking.size()); i++) {
+          int c = ranking.get(i);
+          Vertex candidate = candidates.get(c);
+          PersonSummary summary =
+              getPersonSummary(dbConnectionState, candidate);
+          Vertex city =
+              candidate.vertices(Direction.OUT, "isLocatedIn").next();
+
+          result.add(new LdbcQuery10Result(
+              summary.snbId(),
+              summary.firstName(),
+              summary.lastName(),
+              scores[c],
+              summary.gender(),
+              city.<String>value("name")));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -999,7 +2469,98 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery11 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        KnowsNeighbourhood neighbourhood = getKnowsNeighbourhood(g,
+            dbConnectionState, operation.personId(), person);
+
+        DimensionCache dimensions =
+            ((TitanDbConnectionState) dbConnectionState).dimensionCache();
+        long countryId =
+            dimensions.countryId(g, operation.countryName());
+        int workFromYear = operation.workFromYear();
+        boolean typed =
+            ((TitanDbConnectionState) dbConnectionState).typedSchema();
+
+        // Jobs are {person vertex ID, organisation vertex ID, workFrom}.
+        List<long[]> jobs = new ArrayList<>();
+        LongHashSet workers = new LongHashSet();
+        if (countryId != DimensionCache.NO_VERTEX) {
+          for (long member : neighbourhood.all()) {
+            Iterator<Edge> edges;
+            if (typed) {
+              edges = g.V(member).outE("workAt")
+                  .has("workFrom", lt(workFromYear));
+            } else {
+              edges = g.V(member).outE("workAt");
+            }
+
+            while (edges.hasNext()) {
+              Edge e = edges.next();
+              int workFrom = intValue(e.value("workFrom"));
+              long organisation = ((Number) e.inVertex().id()).longValue();
+              if (workFrom < workFromYear && dimensions.organisationCountryId(
+                  g, organisation) == countryId) {
+                jobs.add(new long[] {member, organisation, workFrom});
+                workers.add(member);
+              }
+            }
+          }
+        }
+
+        Map<Long, PersonSummary> summaries = new HashMap<>(workers.size());
+        if (!workers.isEmpty()) {
+          g.V(vertexIds(workers.toArray())).forEachRemaining((v) -> {
+            PersonSummary summary = getPersonSummary(dbConnectionState, v);
+            summaries.put(summary.vertexId(), summary);
+          });
+        }
+
+        jobs.sort((a, b) -> {
+          if (a[2] != b[2]) {
+            return Long.compare(a[2], b[2]);
+          }
+          long snbIdA = summaries.get(a[0]).snbId();
+          long snbIdB = summaries.get(b[0]).snbId();
+          if (snbIdA != snbIdB) {
+            return Long.compare(snbIdA, snbIdB);
+          }
+          return dimensions.organisationName(g, b[1])
+              .compareTo(dimensions.organisationName(g, a[1]));
+        });
+
+        List<LdbcQuery11Result> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(operation.limit(), jobs.size()); i++) {
+          long[] job = jobs.get(i);
+          PersonSummary summary = summaries.get(job[0]);
+
+          result.add(new LdbcQuery11Result(
+              summary.snbId(),
+              summary.firstName(),
+              summary.lastName(),
+              dimensions.organisationName(g, job[1]),
+              (int) job[2]));
+        }
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -1025,7 +2586,105 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery12 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+
+        DimensionCache dimensions =
+            ((TitanDbConnectionState) dbConnectionState).dimensionCache();
+        LongHashSet validTags =
+            dimensions.tagClassTags(g, operation.tagClassName());
+
+        /*
+         * Each comment replies to exactly one message, so following the
+         * replyOf edge of every comment yields one post per reply to a post.
+         */
+        Map<Long, LongHashSet> expertTags = new HashMap<>();
+        LongIntHashMap replyCounts = new LongIntHashMap();
+        if (!validTags.isEmpty()) {
+          Iterator<Object> friends = g.V(person).out("knows").id();
+          while (friends.hasNext()) {
+            long friend = ((Number) friends.next()).longValue();
+            LongHashSet tags = new LongHashSet();
+            int replyCount = 0;
+
+            Iterator<Vertex> posts = g.V(friend).in("hasCreator")
+                .hasLabel(Entity.COMMENT.getName()).out("replyOf")
+                .hasLabel(Entity.POST.getName());
+            while (posts.hasNext()) {
+              boolean valid = false;
+              Iterator<Edge> hasTags =
+                  posts.next().edges(Direction.OUT, "hasTag");
+              while (hasTags.hasNext()) {
+                long tag =
+                    ((Number) hasTags.next().inVertex().id()).longValue();
+                if (validTags.contains(tag)) {
+                  tags.add(tag);
+                  valid = true;
+                }
+              }
+              if (valid) {
+                replyCount++;
+              }
+            }
+
+            if (replyCount > 0) {
+              replyCounts.put(friend, replyCount);
+              expertTags.put(friend, tags);
+            }
+          }
+        }
+
+        List<PersonSummary> experts = new ArrayList<>(expertTags.size());
+        if (!expertTags.isEmpty()) {
+          g.V(expertTags.keySet().toArray()).forEachRemaining((v) -> {
+            experts.add(getPersonSummary(dbConnectionState, v));
+          });
+        }
+        experts.sort((a, b) -> {
+          int countA = replyCounts.get(a.vertexId(), 0);
+          int countB = replyCounts.get(b.vertexId(), 0);
+          if (countA != countB) {
+            return Integer.compare(countB, countA);
+          }
+          return Long.compare(a.snbId(), b.snbId());
+        });
+
+        List<LdbcQuery12Result> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(operation.limit(), experts.size()); i++) {
+          PersonSummary expert = experts.get(i);
+          List<String> tagNames = new ArrayList<>();
+          for (long tag : expertTags.get(expert.vertexId()).toArray()) {
+            tagNames.add(dimensions.tagName(g, tag));
+          }
+          Collections.sort(tagNames);
+
+          result.add(new LdbcQuery12Result(
+              expert.snbId(),
+              expert.firstName(),
+              expert.lastName(),
+              tagNames,
+              replyCounts.get(expert.vertexId(), 0)));
+        }
 
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -1046,7 +2705,33 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery13 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person1 = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.person1Id());
+        Vertex person2 = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.person2Id());
+
+        LdbcQuery13Result result = new LdbcQuery13Result(
+            shortestKnowsPathLength(g, person1, person2));
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
 
+        resultReporter.report(1, result, operation);
+        break;
+      }
     }
 
   }
@@ -1073,7 +2758,67 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery14 operation,
                                  DbConnectionState dbConnectionState,
                                  ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
+        GraphTraversalSource g = client.traversal();
+
+        Vertex person1 = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.person1Id());
+        Vertex person2 = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.person2Id());
+
+        List<long[]> paths = shortestKnowsPaths(g, person1, person2);
+
+        // Paths share most of their persons and hops, so look each up once.
+        LongHashSet pathVertices = new LongHashSet();
+        paths.forEach((path) -> {
+          for (long v : path) {
+            pathVertices.add(v);
+          }
+        });
+        Map<Long, Long> snbIds = new HashMap<>();
+        if (!pathVertices.isEmpty()) {
+          g.V(vertexIds(pathVertices.toArray())).forEachRemaining((v) -> {
+            snbIds.put(((Number) v.id()).longValue(),
+                getSNBId(dbConnectionState, v));
+          });
+        }
+        Map<List<Long>, Double> hopWeights = new HashMap<>();
+
+        List<LdbcQuery14Result> result = new ArrayList<>(paths.size());
+        for (long[] path : paths) {
+          List<Long> personIds = new ArrayList<>(path.length);
+          double pathWeight = 0.0;
+          for (int i = 0; i < path.length; i++) {
+            personIds.add(snbIds.get(path[i]));
+            if (i > 0) {
+              long a = Math.min(path[i - 1], path[i]);
+              long b = Math.max(path[i - 1], path[i]);
+              pathWeight += hopWeights.computeIfAbsent(Arrays.asList(a, b),
+                  (k) -> interactionWeight(g, a, b));
+            }
+          }
+          result.add(new LdbcQuery14Result(personIds, pathWeight));
+        }
 
+        result.sort((r1, r2) ->
+            Double.compare(r2.pathWeight(), r1.pathWeight()));
+
+        if (doTransactionalReads) {
+          try {
+            client.tx().commit();
+          } catch (RuntimeException e) {
+            txAttempts++;
+            continue;
+          }
+        } else {
+          client.tx().rollback();
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
   }
@@ -1103,29 +2848,19 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex person = g.V().has("iid",
-            makeIid(Entity.PERSON, person_id)).next();
-
-        Iterator<VertexProperty<String>> props = person.properties();
-        Map<String, String> propertyMap = new HashMap<>();
-        props.forEachRemaining((prop) -> {
-          propertyMap.put(prop.key(), prop.value());
-        });
-
-        Vertex place =
-            person.edges(Direction.OUT, "isLocatedIn").next().inVertex();
-        long placeId = getSNBId(place);
+        PersonSummary person =
+            getPersonSummary(g, dbConnectionState, person_id);
 
         LdbcShortQuery1PersonProfileResult res =
             new LdbcShortQuery1PersonProfileResult(
-                propertyMap.get("firstName"),
-                propertyMap.get("lastName"),
-                Long.parseLong(propertyMap.get("birthday")),
-                propertyMap.get("locationIP"),
-                propertyMap.get("browserUsed"),
-                placeId,
-                propertyMap.get("gender"),
-                Long.parseLong(propertyMap.get("creationDate")));
+                person.firstName(),
+                person.lastName(),
+                person.birthday(),
+                person.locationIP(),
+                person.browserUsed(),
+                person.cityId(),
+                person.gender(),
+                person.creationDate());
 
         if (doTransactionalReads) {
           try {
@@ -1169,28 +2904,42 @@ public class TitanDb extends Db {
 
         List<LdbcShortQuery2PersonPostsResult> result = new ArrayList<>();
 
-        Vertex person = g.V().has("iid",
-            makeIid(Entity.PERSON, operation.personId())).next();
-        Iterator<Edge> edges = person.edges(Direction.IN, "hasCreator");
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
+        Iterator<Edge> edges;
+        if (edgeIndexes(dbConnectionState)) {
+          edges = newestEdges(g, person, Direction.IN, "hasCreator",
+              Long.MIN_VALUE, Long.MAX_VALUE, operation.limit()).iterator();
+        } else {
+          edges = person.edges(Direction.IN, "hasCreator");
+        }
 
+        // Read each message's creation date and ID once, not on every
+        // comparison.
         List<Vertex> messageList = new ArrayList<>();
-        edges.forEachRemaining((e) -> messageList.add(e.outVertex()));
+        Map<Vertex, Long> messageDates = new HashMap<>();
+        Map<Vertex, Long> messageIds = new HashMap<>();
+        edges.forEachRemaining((e) -> {
+          Vertex message = e.outVertex();
+          messageList.add(message);
+          messageDates.put(message,
+              longValue(message.property("creationDate").value()));
+          messageIds.put(message, getSNBId(dbConnectionState, message));
+        });
         messageList.sort((a, b) -> {
           Vertex v1 = (Vertex) a;
           Vertex v2 = (Vertex) b;
 
-          long v1Date =
-              Long.decode(v1.<String>property("creationDate").value());
-          long v2Date =
-              Long.decode(v2.<String>property("creationDate").value());
+          long v1Date = messageDates.get(v1);
+          long v2Date = messageDates.get(v2);
 
           if (v1Date > v2Date) {
             return -1;
           } else if (v1Date < v2Date) {
             return 1;
           } else {
-            long v1Id = getSNBId(v1);
-            long v2Id = getSNBId(v2);
+            long v1Id = messageIds.get(v1);
+            long v2Id = messageIds.get(v2);
             if (v1Id > v2Id) {
               return -1;
             } else if (v1Id < v2Id) {
@@ -1205,21 +2954,19 @@ public class TitanDb extends Db {
              i++) {
           Vertex message = messageList.get(i);
 
-          Map<String, String> propMap = new HashMap<>();
-          message.<String>properties().forEachRemaining((vp) -> {
+          Map<String, Object> propMap = new HashMap<>();
+          message.properties().forEachRemaining((vp) -> {
             propMap.put(vp.key(), vp.value());
           });
 
-          long messageId = getSNBId(message);
+          long messageId = messageIds.get(message);
 
-          String messageContent;
-          if (propMap.get("content").length() != 0) {
-            messageContent = propMap.get("content");
-          } else {
-            messageContent = propMap.get("imageFile");
+          String messageContent = (String) propMap.get("content");
+          if (messageContent.length() == 0) {
+            messageContent = (String) propMap.get("imageFile");
           }
 
-          long messageCreationDate = Long.decode(propMap.get("creationDate"));
+          long messageCreationDate = messageDates.get(message);
 
           long originalPostId;
           long originalPostAuthorId;
@@ -1227,7 +2974,7 @@ public class TitanDb extends Db {
           String originalPostAuthorLastName;
           if (message.label().equals(Entity.POST.getName())) {
             originalPostId = messageId;
-            originalPostAuthorId = getSNBId(person);
+            originalPostAuthorId = getSNBId(dbConnectionState, person);
             originalPostAuthorFirstName =
                 person.<String>property("firstName").value();
             originalPostAuthorLastName =
@@ -1237,11 +2984,11 @@ public class TitanDb extends Db {
                 message.edges(Direction.OUT, "replyOf").next().inVertex();
             while (true) {
               if (parentMessage.label().equals(Entity.POST.getName())) {
-                originalPostId = getSNBId(parentMessage);
+                originalPostId = getSNBId(dbConnectionState, parentMessage);
 
                 Vertex author = parentMessage.edges(Direction.OUT,
                     "hasCreator").next().inVertex();
-                originalPostAuthorId = getSNBId(author);
+                originalPostAuthorId = getSNBId(dbConnectionState, author);
                 originalPostAuthorFirstName =
                     author.<String>property("firstName").value();
                 originalPostAuthorLastName =
@@ -1306,27 +3053,22 @@ public class TitanDb extends Db {
 
         List<LdbcShortQuery3PersonFriendsResult> result = new ArrayList<>();
 
-        Vertex person = g.V().has("iid",
-            makeIid(Entity.PERSON, operation.personId())).next();
+        Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+            operation.personId());
 
         Iterator<Edge> edges = person.edges(Direction.OUT, "knows");
 
         edges.forEachRemaining((e) -> {
-          long creationDate =
-              Long.decode(e.<String>property("creationDate").value());
-
-          Vertex friend = e.inVertex();
+          long creationDate = longValue(e.property("creationDate").value());
 
-          long personId = getSNBId(friend);
-
-          String firstName = friend.<String>property("firstName").value();
-          String lastName = friend.<String>property("lastName").value();
+          PersonSummary friend =
+              getPersonSummary(dbConnectionState, e.inVertex());
 
           LdbcShortQuery3PersonFriendsResult res =
               new LdbcShortQuery3PersonFriendsResult(
-                  personId,
-                  firstName,
-                  lastName,
+                  friend.snbId(),
+                  friend.firstName(),
+                  friend.lastName(),
                   creationDate);
           result.add(res);
         });
@@ -1391,11 +3133,11 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex message = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex message = getVertex(g, dbConnectionState, Entity.MESSAGE,
+            operation.messageId());
 
         long creationDate =
-            Long.decode(message.<String>property("creationDate").value());
+            longValue(message.property("creationDate").value());
         String content = message.<String>property("content").value();
         if (content.length() == 0) {
           content = message.<String>property("imageFile").value();
@@ -1442,22 +3184,17 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex message = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
-
-        Vertex creator =
-            message.edges(Direction.OUT, "hasCreator").next().inVertex();
+        Vertex message = getVertex(g, dbConnectionState, Entity.MESSAGE,
+            operation.messageId());
 
-        long creatorId = getSNBId(creator);
-        String creatorFirstName =
-            creator.<String>property("firstName").value();
-        String creatorLastName = creator.<String>property("lastName").value();
+        PersonSummary creator = getPersonSummary(dbConnectionState,
+            message.edges(Direction.OUT, "hasCreator").next().inVertex());
 
         LdbcShortQuery5MessageCreatorResult result =
             new LdbcShortQuery5MessageCreatorResult(
-                creatorId,
-                creatorFirstName,
-                creatorLastName);
+                creator.snbId(),
+                creator.firstName(),
+                creator.lastName());
 
         if (doTransactionalReads) {
           try {
@@ -1498,19 +3235,19 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex vertex = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex vertex = getVertex(g, dbConnectionState, Entity.MESSAGE,
+            operation.messageId());
 
         LdbcShortQuery6MessageForumResult result;
         while (true) {
           if (vertex.label().equals(Entity.FORUM.getName())) {
-            long forumId = getSNBId(vertex);
+            long forumId = getSNBId(dbConnectionState, vertex);
             String forumTitle = vertex.<String>property("title").value();
 
             Vertex moderator =
                 vertex.edges(Direction.OUT, "hasModerator").next().inVertex();
 
-            long moderatorId = getSNBId(moderator);
+            long moderatorId = getSNBId(dbConnectionState, moderator);
             String moderatorFirstName =
                 moderator.<String>property("firstName").value();
             String moderatorLastName =
@@ -1572,41 +3309,39 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex message = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex message = getVertex(g, dbConnectionState, Entity.MESSAGE,
+            operation.messageId());
         Vertex messageAuthor =
             message.edges(Direction.OUT, "hasCreator").next().inVertex();
-        long messageAuthorId = getSNBId(messageAuthor);
 
         List<Vertex> replies = new ArrayList<>();
         message.edges(Direction.IN, "replyOf").forEachRemaining((e) -> {
           replies.add(e.outVertex());
         });
 
-        List<Long> messageAuthorFriendIds = new ArrayList<>();
+        // Friends are compared by vertex, which needs no reads of their
+        // properties.
+        Set<Object> messageAuthorFriends = new HashSet<>();
         messageAuthor.edges(Direction.OUT, "knows").forEachRemaining((e) -> {
-          messageAuthorFriendIds.add(getSNBId(e.inVertex()));
+          messageAuthorFriends.add(e.inVertex().id());
         });
 
         List<LdbcShortQuery7MessageRepliesResult> result = new ArrayList<>();
 
         for (Vertex reply : replies) {
-          long replyId = getSNBId(reply);
+          long replyId = getSNBId(dbConnectionState, reply);
           String replyContent = reply.<String>property("content").value();
           long replyCreationDate =
-              Long.decode(reply.<String>property("creationDate").value());
+              longValue(reply.property("creationDate").value());
 
-          Vertex replyAuthor =
+          Vertex replyAuthorVertex =
               reply.edges(Direction.OUT, "hasCreator").next().inVertex();
-          long replyAuthorId = getSNBId(replyAuthor);
-          String replyAuthorFirstName =
-              replyAuthor.<String>property("firstName").value();
-          String replyAuthorLastName =
-              replyAuthor.<String>property("lastName").value();
+          PersonSummary replyAuthor =
+              getPersonSummary(dbConnectionState, replyAuthorVertex);
 
           boolean knows = false;
-          if (messageAuthorId != replyAuthorId) {
-            knows = messageAuthorFriendIds.contains(replyAuthorId);
+          if (!messageAuthor.id().equals(replyAuthorVertex.id())) {
+            knows = messageAuthorFriends.contains(replyAuthorVertex.id());
           }
 
           LdbcShortQuery7MessageRepliesResult res =
@@ -1614,9 +3349,9 @@ public class TitanDb extends Db {
                   replyId,
                   replyContent,
                   replyCreationDate,
-                  replyAuthorId,
-                  replyAuthorFirstName,
-                  replyAuthorLastName,
+                  replyAuthor.snbId(),
+                  replyAuthor.firstName(),
+                  replyAuthor.lastName(),
                   knows
               );
 
@@ -1693,8 +3428,8 @@ public class TitanDb extends Db {
       List<Object> personKeyValues =
           new ArrayList<>(18 + 2 * operation.languages().size()
               + 2 * operation.emails().size());
-      personKeyValues.add("iid");
-      personKeyValues.add(makeIid(Entity.PERSON, operation.personId()));
+      addIdProperty(personKeyValues, dbConnectionState, Entity.PERSON,
+          operation.personId());
       personKeyValues.add(T.label);
       personKeyValues.add("person");
       personKeyValues.add("firstName");
@@ -1704,9 +3439,10 @@ public class TitanDb extends Db {
       personKeyValues.add("gender");
       personKeyValues.add(operation.gender());
       personKeyValues.add("birthday");
-      personKeyValues.add(String.valueOf(operation.birthday().getTime()));
+      personKeyValues.add(dateValue(dbConnectionState, operation.birthday()));
       personKeyValues.add("creationDate");
-      personKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      personKeyValues.add(
+          dateValue(dbConnectionState, operation.creationDate()));
       personKeyValues.add("locationIP");
       personKeyValues.add(operation.locationIp());
       personKeyValues.add("browserUsed");
@@ -1726,28 +3462,25 @@ public class TitanDb extends Db {
       Vertex person = client.addVertex(personKeyValues.toArray());
 
       // Add edge to place
-      Vertex place = g.V().has("iid",
-          makeIid(Entity.PLACE, operation.cityId())).next();
+      Vertex place = getVertex(g, dbConnectionState, Entity.PLACE,
+          operation.cityId());
       person.addEdge("isLocatedIn", place);
 
       // Add edges to tags
-      List<String> tagIds = new ArrayList<>(operation.tagIds().size());
-      operation.tagIds().forEach((id) ->
-          tagIds.add(Entity.TAG.getName() + ":" + String.valueOf(id)));
-      Iterator<Vertex> tagVItr =
-          client.vertices(tagIds.toArray());
-      tagVItr.forEachRemaining((tag) -> {
-        person.addEdge("hasInterest", tag);
-      });
+      getVertices(g, dbConnectionState, Entity.TAG, operation.tagIds())
+          .forEach((tag) -> {
+            person.addEdge("hasInterest", tag);
+          });
 
       // Add edges to universities
       List<Object> studiedAtKeyValues = new ArrayList<>(2);
       for (LdbcUpdate1AddPerson.Organization org : operation.studyAt()) {
         studiedAtKeyValues.clear();
         studiedAtKeyValues.add("classYear");
-        studiedAtKeyValues.add(String.valueOf(org.year()));
-        Vertex orgV = g.V().has("iid",
-            makeIid(Entity.ORGANISATION, org.organizationId())).next();
+        studiedAtKeyValues.add(
+            intPropertyValue(dbConnectionState, org.year()));
+        Vertex orgV = getVertex(g, dbConnectionState, Entity.ORGANISATION,
+            org.organizationId());
         person.addEdge("studyAt", orgV, studiedAtKeyValues.toArray());
       }
 
@@ -1756,14 +3489,21 @@ public class TitanDb extends Db {
       for (LdbcUpdate1AddPerson.Organization org : operation.workAt()) {
         workedAtKeyValues.clear();
         workedAtKeyValues.add("workFrom");
-        workedAtKeyValues.add(String.valueOf(org.year()));
-        Vertex orgV = g.V().has("iid",
-            makeIid(Entity.ORGANISATION, org.organizationId())).next();
+        workedAtKeyValues.add(
+            intPropertyValue(dbConnectionState, org.year()));
+        Vertex orgV = getVertex(g, dbConnectionState, Entity.ORGANISATION,
+            org.organizationId());
         person.addEdge("workAt", orgV, workedAtKeyValues.toArray());
       }
 
       client.tx().commit();
 
+      PersonCache cache =
+          ((TitanDbConnectionState) dbConnectionState).personCache();
+      if (cache != null) {
+        cache.invalidate(operation.personId());
+      }
+
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
   }
@@ -1784,13 +3524,13 @@ public class TitanDb extends Db {
       Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
       GraphTraversalSource g = client.traversal();
 
-      Vertex person = g.V().has("iid",
-          makeIid(Entity.PERSON, operation.personId())).next();
-      Vertex post = g.V().has("iid",
-          makeIid(Entity.POST, operation.postId())).next();
+      Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.personId());
+      Vertex post = getVertex(g, dbConnectionState, Entity.POST,
+          operation.postId());
       List<Object> keyValues = new ArrayList<>(2);
       keyValues.add("creationDate");
-      keyValues.add(String.valueOf(operation.creationDate().getTime()));
+      keyValues.add(dateValue(dbConnectionState, operation.creationDate()));
       person.addEdge("likes", post, keyValues.toArray());
 
       client.tx().commit();
@@ -1815,13 +3555,13 @@ public class TitanDb extends Db {
       Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
       GraphTraversalSource g = client.traversal();
 
-      Vertex person = g.V().has("iid",
-          makeIid(Entity.PERSON, operation.personId())).next();
-      Vertex comment = g.V().has("iid",
-          makeIid(Entity.COMMENT, operation.commentId())).next();
+      Vertex person = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.personId());
+      Vertex comment = getVertex(g, dbConnectionState, Entity.COMMENT,
+          operation.commentId());
       List<Object> keyValues = new ArrayList<>(2);
       keyValues.add("creationDate");
-      keyValues.add(String.valueOf(operation.creationDate().getTime()));
+      keyValues.add(dateValue(dbConnectionState, operation.creationDate()));
       person.addEdge("likes", comment, keyValues.toArray());
 
       client.tx().commit();
@@ -1847,34 +3587,26 @@ public class TitanDb extends Db {
       GraphTraversalSource g = client.traversal();
 
       List<Object> forumKeyValues = new ArrayList<>(8);
-      forumKeyValues.add("iid");
-      forumKeyValues.add(makeIid(Entity.FORUM, operation.forumId()));
+      addIdProperty(forumKeyValues, dbConnectionState, Entity.FORUM,
+          operation.forumId());
       forumKeyValues.add(T.label);
       forumKeyValues.add(Entity.FORUM.getName());
       forumKeyValues.add("title");
       forumKeyValues.add(operation.forumTitle());
       forumKeyValues.add("creationDate");
-      forumKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      forumKeyValues.add(
+          dateValue(dbConnectionState, operation.creationDate()));
 
       Vertex forum = client.addVertex(forumKeyValues.toArray());
 
-      List<String> ids = new ArrayList<>(operation.tagIds().size() + 1);
-      operation.tagIds().forEach((id) -> {
-        ids.add(makeIid(Entity.TAG, id));
-      });
-      ids.add(makeIid(Entity.PERSON, operation.moderatorPersonId()));
-
-      g.V().has("iid", within(ids)).forEachRemaining((v) -> {
-        if (v.label().equals(Entity.TAG.getName())) {
-          forum.addEdge("hasTag", v);
-        } else if (v.label().equals(Entity.PERSON.getName())) {
-          forum.addEdge("hasModerator", v);
-        } else {
-          throw new RuntimeException(
-              "ERROR: LdbcUpdate4AddForum query tried to add an edge to a "
-                  + "vertex that is neither a tag nor a person.");
-        }
-      });
+      getVertices(g, dbConnectionState, Entity.TAG, operation.tagIds())
+          .forEach((tag) -> {
+            forum.addEdge("hasTag", tag);
+          });
+
+      Vertex moderator = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.moderatorPersonId());
+      forum.addEdge("hasModerator", moderator);
 
       client.tx().commit();
 
@@ -1898,14 +3630,14 @@ public class TitanDb extends Db {
       Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
       GraphTraversalSource g = client.traversal();
 
-      Vertex forum = g.V().has("iid",
-          makeIid(Entity.FORUM, operation.forumId())).next();
-      Vertex member = g.V().has("iid",
-          makeIid(Entity.PERSON, operation.personId())).next();
+      Vertex forum = getVertex(g, dbConnectionState, Entity.FORUM,
+          operation.forumId());
+      Vertex member = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.personId());
 
       List<Object> edgeKeyValues = new ArrayList<>(2);
       edgeKeyValues.add("joinDate");
-      edgeKeyValues.add(String.valueOf(operation.joinDate().getTime()));
+      edgeKeyValues.add(dateValue(dbConnectionState, operation.joinDate()));
 
       forum.addEdge("hasMember", member, edgeKeyValues.toArray());
 
@@ -1932,14 +3664,15 @@ public class TitanDb extends Db {
       GraphTraversalSource g = client.traversal();
 
       List<Object> postKeyValues = new ArrayList<>(18);
-      postKeyValues.add("iid");
-      postKeyValues.add(makeIid(Entity.POST, operation.postId()));
+      addIdProperty(postKeyValues, dbConnectionState, Entity.POST,
+          operation.postId());
       postKeyValues.add(T.label);
       postKeyValues.add(Entity.POST.getName());
       postKeyValues.add("imageFile");
       postKeyValues.add(operation.imageFile());
       postKeyValues.add("creationDate");
-      postKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      postKeyValues.add(
+          dateValue(dbConnectionState, operation.creationDate()));
       postKeyValues.add("locationIP");
       postKeyValues.add(operation.locationIp());
       postKeyValues.add("browserUsed");
@@ -1949,33 +3682,28 @@ public class TitanDb extends Db {
       postKeyValues.add("content");
       postKeyValues.add(operation.content());
       postKeyValues.add("length");
-      postKeyValues.add(String.valueOf(operation.length()));
+      postKeyValues.add(
+          intPropertyValue(dbConnectionState, operation.length()));
 
       Vertex post = client.addVertex(postKeyValues.toArray());
 
-      List<String> ids = new ArrayList<>(3 + operation.tagIds().size());
-      ids.add(makeIid(Entity.PERSON, operation.authorPersonId()));
-      ids.add(makeIid(Entity.FORUM, operation.forumId()));
-      ids.add(makeIid(Entity.PLACE, operation.countryId()));
-      operation.tagIds().forEach((id) -> {
-        ids.add(makeIid(Entity.TAG, id));
-      });
-
-      g.V().has("iid", within(ids)).forEachRemaining((v) -> {
-        if (v.label().equals(Entity.PERSON.getName())) {
-          post.addEdge("hasCreator", v);
-        } else if (v.label().equals(Entity.FORUM.getName())) {
-          v.addEdge("containerOf", post);
-        } else if (v.label().equals(Entity.PLACE.getName())) {
-          post.addEdge("isLocatedIn", v);
-        } else if (v.label().equals(Entity.TAG.getName())) {
-          post.addEdge("hasTag", v);
-        } else {
-          throw new RuntimeException(
-              "ERROR: LdbcUpdate6AddPostHandler query tried to add an edge "
-                  + "to a vertex that is none of {person, forum, place, tag}.");
-        }
-      });
+      Vertex author = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.authorPersonId());
+      post.addEdge("hasCreator", author, messageEdgeKeyValues(
+          dbConnectionState, operation.creationDate()));
+
+      Vertex forum = getVertex(g, dbConnectionState, Entity.FORUM,
+          operation.forumId());
+      forum.addEdge("containerOf", post);
+
+      Vertex country = getVertex(g, dbConnectionState, Entity.PLACE,
+          operation.countryId());
+      post.addEdge("isLocatedIn", country);
+
+      getVertices(g, dbConnectionState, Entity.TAG, operation.tagIds())
+          .forEach((tag) -> {
+            post.addEdge("hasTag", tag);
+          });
 
       client.tx().commit();
 
@@ -2000,12 +3728,13 @@ public class TitanDb extends Db {
       GraphTraversalSource g = client.traversal();
 
       List<Object> commentKeyValues = new ArrayList<>(14);
-      commentKeyValues.add("iid");
-      commentKeyValues.add(makeIid(Entity.COMMENT, operation.commentId()));
+      addIdProperty(commentKeyValues, dbConnectionState, Entity.COMMENT,
+          operation.commentId());
       commentKeyValues.add(T.label);
       commentKeyValues.add(Entity.COMMENT.getName());
       commentKeyValues.add("creationDate");
-      commentKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      commentKeyValues.add(
+          dateValue(dbConnectionState, operation.creationDate()));
       commentKeyValues.add("locationIP");
       commentKeyValues.add(operation.locationIp());
       commentKeyValues.add("browserUsed");
@@ -2013,41 +3742,36 @@ public class TitanDb extends Db {
       commentKeyValues.add("content");
       commentKeyValues.add(operation.content());
       commentKeyValues.add("length");
-      commentKeyValues.add(String.valueOf(operation.length()));
+      commentKeyValues.add(
+          intPropertyValue(dbConnectionState, operation.length()));
 
       Vertex comment = client.addVertex(commentKeyValues.toArray());
 
-      List<String> ids = new ArrayList<>(4 + operation.tagIds().size());
-      ids.add(makeIid(Entity.PERSON, operation.authorPersonId()));
-      ids.add(makeIid(Entity.PLACE, operation.countryId()));
-      operation.tagIds().forEach((id) -> {
-        ids.add(makeIid(Entity.TAG, id));
-      });
+      Vertex author = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.authorPersonId());
+      Object[] edgeKeyValues =
+          messageEdgeKeyValues(dbConnectionState, operation.creationDate());
+      comment.addEdge("hasCreator", author, edgeKeyValues);
+
+      Vertex country = getVertex(g, dbConnectionState, Entity.PLACE,
+          operation.countryId());
+      comment.addEdge("isLocatedIn", country);
+
       if (operation.replyToCommentId() != -1) {
-        ids.add(makeIid(Entity.COMMENT, operation.replyToCommentId()));
+        Vertex parent = getVertex(g, dbConnectionState, Entity.COMMENT,
+            operation.replyToCommentId());
+        comment.addEdge("replyOf", parent, edgeKeyValues);
       }
       if (operation.replyToPostId() != -1) {
-        ids.add(makeIid(Entity.POST, operation.replyToPostId()));
+        Vertex parent = getVertex(g, dbConnectionState, Entity.POST,
+            operation.replyToPostId());
+        comment.addEdge("replyOf", parent, edgeKeyValues);
       }
 
-      g.V().has("iid", within(ids)).forEachRemaining((v) -> {
-        if (v.label().equals(Entity.PERSON.getName())) {
-          comment.addEdge("hasCreator", v);
-        } else if (v.label().equals(Entity.PLACE.getName())) {
-          comment.addEdge("isLocatedIn", v);
-        } else if (v.label().equals(Entity.COMMENT.getName())) {
-          comment.addEdge("replyOf", v);
-        } else if (v.label().equals(Entity.POST.getName())) {
-          comment.addEdge("replyOf", v);
-        } else if (v.label().equals(Entity.TAG.getName())) {
-          comment.addEdge("hasTag", v);
-        } else {
-          throw new RuntimeException(
-              "ERROR: LdbcUpdate7AddCommentHandler query tried to add an "
-                  + "edge to a vertex that is none of {person, place, comment, "
-                  + "post, tag}.");
-        }
-      });
+      getVertices(g, dbConnectionState, Entity.TAG, operation.tagIds())
+          .forEach((tag) -> {
+            comment.addEdge("hasTag", tag);
+          });
 
       client.tx().commit();
 
@@ -2074,19 +3798,26 @@ public class TitanDb extends Db {
       List<Object> knowsEdgeKeyValues = new ArrayList<>(2);
       knowsEdgeKeyValues.add("creationDate");
       knowsEdgeKeyValues.add(
-          String.valueOf(operation.creationDate().getTime()));
-
-      String p1Iid = makeIid(Entity.PERSON, operation.person1Id());
-      String p2Iid = makeIid(Entity.PERSON, operation.person2Id());
+          dateValue(dbConnectionState, operation.creationDate()));
 
-      Vertex person1 = g.V().has("iid", p1Iid).next();
-      Vertex person2 = g.V().has("iid", p2Iid).next();
+      Vertex person1 = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.person1Id());
+      Vertex person2 = getVertex(g, dbConnectionState, Entity.PERSON,
+          operation.person2Id());
 
       person1.addEdge("knows", person2, knowsEdgeKeyValues.toArray());
       person2.addEdge("knows", person1, knowsEdgeKeyValues.toArray());
 
       client.tx().commit();
 
+      // The new friendship changes the neighbourhood of everyone within two
+      // hops of either person.
+      KnowsNeighbourhood.Cache cache =
+          ((TitanDbConnectionState) dbConnectionState).neighbourhoodCache();
+      if (cache != null) {
+        cache.clear();
+      }
+
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
   }
@@ -22,7 +22,10 @@ import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 /**
@@ -30,7 +33,64 @@ import java.util.logging.Level;
  */
 public class TitanDbConnectionState extends DbConnectionState {
 
-  private Graph client;
+  /*
+   * Properties with these prefixes are Titan configuration options, such as
+   * cache.db-cache-size or storage.cassandra.thrift.cpool.max-active, and are
+   * passed on to TitanFactory as they are.
+   */
+  private static final String[] TITAN_CONFIG_PREFIXES = {
+      "cache.",
+      "query.",
+      "storage."
+  };
+
+  /*
+   * Independent graph instances, each with its own connection pool and
+   * database cache. A driver thread always uses the same instance, so that
+   * the thread-bound transactions handlers commit are the ones they read and
+   * wrote through.
+   */
+  private final List<Graph> clients;
+
+  private final AtomicInteger nextClient = new AtomicInteger();
+
+  private final ThreadLocal<Graph> threadClient = ThreadLocal.withInitial(
+      () -> clients.get(
+          Math.floorMod(nextClient.getAndIncrement(), clients.size())));
+
+  /*
+   * Whether dates and numeric properties are stored as Long and Integer
+   * values rather than Strings.
+   */
+  private final boolean typedSchema;
+
+  /*
+   * Whether vertices are identified by their label and a Long snbId property
+   * rather than by an "entity:id" iid String.
+   */
+  private final boolean numericIds;
+
+  /*
+   * Whether message creation dates are copied onto hasCreator and replyOf
+   * edges, and edges are indexed by creationDate.
+   */
+  private final boolean edgeIndexes;
+
+  /*
+   * Summaries of recently used persons, or null if caching is disabled.
+   */
+  private final PersonCache personCache;
+
+  /*
+   * Recently computed knows neighbourhoods, or null if caching is disabled.
+   */
+  private final KnowsNeighbourhood.Cache neighbourhoodCache;
+
+  /*
+   * Lookups into the static parts of the graph, filled in as queries use
+   * them.
+   */
+  private final DimensionCache dimensionCache = new DimensionCache();
 
   public TitanDbConnectionState(Map<String, String> props) {
     BaseConfiguration config = new BaseConfiguration();
@@ -53,24 +113,116 @@ public class TitanDbConnectionState extends DbConnectionState {
       graphName = "default";
     }
 
+    if (props.containsKey("typedSchema")) {
+      typedSchema = Boolean.parseBoolean(props.get("typedSchema"));
+    } else {
+      typedSchema = false;
+    }
+
+    if (props.containsKey("numericIds")) {
+      numericIds = Boolean.parseBoolean(props.get("numericIds"));
+    } else {
+      numericIds = false;
+    }
+
+    if (props.containsKey("edgeIndexes")) {
+      edgeIndexes = Boolean.parseBoolean(props.get("edgeIndexes"));
+    } else {
+      edgeIndexes = false;
+    }
+
+    if (props.containsKey("personCacheSize")
+        && Integer.decode(props.get("personCacheSize")) > 0) {
+      personCache = new PersonCache(
+          Integer.decode(props.get("personCacheSize")));
+    } else {
+      personCache = null;
+    }
+
+    if (props.containsKey("neighbourhoodCacheTtl")
+        && Long.decode(props.get("neighbourhoodCacheTtl")) > 0) {
+      neighbourhoodCache = new KnowsNeighbourhood.Cache(
+          Long.decode(props.get("neighbourhoodCacheTtl")));
+    } else {
+      neighbourhoodCache = null;
+    }
+
+    int graphPoolSize;
+    if (props.containsKey("graphPoolSize")) {
+      graphPoolSize = Integer.decode(props.get("graphPoolSize"));
+    } else {
+      graphPoolSize = 1;
+    }
+
     config.setProperty("storage.backend", "cassandra");
     config.setProperty("storage.hostname", cassandraLocator);
     config.setProperty("storage.cassandra.keyspace", graphName);
 
-    client = TitanFactory.open(config);
+    props.forEach((key, value) -> {
+      for (String prefix : TITAN_CONFIG_PREFIXES) {
+        if (key.startsWith(prefix)) {
+          config.setProperty(key, value);
+        }
+      }
+    });
+
+    clients = new ArrayList<>(graphPoolSize);
+    for (int i = 0; i < graphPoolSize; i++) {
+      clients.add(TitanFactory.open(config));
+    }
   }
 
+  /**
+   * Returns the graph instance the calling thread executes its queries on.
+   */
   public Graph getClient() {
-    return client;
+    return threadClient.get();
+  }
+
+  public boolean typedSchema() {
+    return typedSchema;
+  }
+
+  public boolean numericIds() {
+    return numericIds;
+  }
+
+  public boolean edgeIndexes() {
+    return edgeIndexes;
+  }
+
+  /**
+   * Returns the cache of person summaries shared by all threads, or null if
+   * person caching is disabled.
+   */
+  public PersonCache personCache() {
+    return personCache;
+  }
+
+  /**
+   * Returns the cache of knows neighbourhoods shared by all threads, or null
+   * if neighbourhood caching is disabled.
+   */
+  public KnowsNeighbourhood.Cache neighbourhoodCache() {
+    return neighbourhoodCache;
+  }
+
+  /**
+   * Returns the cache of static dimension lookups shared by all threads.
+   */
+  public DimensionCache dimensionCache() {
+    return dimensionCache;
   }
 
   @Override
   public void close() throws IOException {
-    try {
-      client.close();
-    } catch (Exception ex) {
-      java.util.logging.Logger.getLogger(TitanDb.class.getName())
-          .log(Level.SEVERE, null, ex);
+    for (Graph client : clients) {
+      try {
+        client.close();
+      } catch (Exception ex) {
+        java.util.logging.Logger.getLogger(TitanDb.class.getName())
+            .log(Level.SEVERE, null, ex);
+      }
     }
   }
 }
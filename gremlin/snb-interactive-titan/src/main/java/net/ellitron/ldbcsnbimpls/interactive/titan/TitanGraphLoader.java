@@ -20,19 +20,34 @@ import com.thinkaurelius.titan.core.*;
 import com.thinkaurelius.titan.core.schema.SchemaAction;
 import com.thinkaurelius.titan.graphdb.database.management.ManagementSystem;
 import org.apache.commons.cli.*;
+import org.apache.tinkerpop.gremlin.process.traversal.Order;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.T;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,101 +60,854 @@ public class TitanGraphLoader {
   private static final Logger logger =
       Logger.getLogger(TitanGraphLoader.class.getName());
 
-  private static final long TX_MAX_RETRIES = 1000;
+  /*
+   * Number of times a single line may fail to commit before loading is
+   * aborted. With backoff capped at TX_BACKOFF_MAX_MILLIS this rides out
+   * several minutes of backend unavailability.
+   */
+  private static final int TX_MAX_RETRIES = 100;
 
-  public static void loadVertices(Graph graph, Path filePath,
-                                  boolean printLoadingDots, int batchSize, long progReportPeriod)
+  /*
+   * Number of consecutive commit failures after which a run of lines is split
+   * in half and each half is committed on its own.
+   */
+  private static final int TX_SPLIT_AFTER_FAILURES = 3;
+
+  private static final long TX_BACKOFF_BASE_MILLIS = 20;
+
+  private static final long TX_BACKOFF_MAX_MILLIS = 5000;
+
+  private static final TxRetryPolicy TX_RETRY_POLICY =
+      new TxRetryPolicy(TX_BACKOFF_BASE_MILLIS, TX_BACKOFF_MAX_MILLIS);
+
+  /**
+   * Variations of the graph schema the loader can produce. The benchmark
+   * connector must be configured with the same options, see {@link TitanDb}.
+   */
+  public static class SchemaOptions {
+
+    /**
+     * Store dates and numeric properties as Long and Integer values rather
+     * than Strings.
+     */
+    public final boolean typedSchema;
+
+    /**
+     * Identify vertices by their label and a Long snbId property, indexed per
+     * label, rather than by an "entity:id" iid String.
+     */
+    public final boolean numericIds;
+
+    /**
+     * Copy the creation date of messages onto their hasCreator and replyOf
+     * edges, and index the edges in {@link #CREATION_DATE_EDGE_LABELS} by
+     * creationDate. Requires typedSchema.
+     */
+    public final boolean edgeIndexes;
+
+    public SchemaOptions(boolean typedSchema, boolean numericIds,
+                         boolean edgeIndexes) {
+      this.typedSchema = typedSchema;
+      this.numericIds = numericIds;
+      this.edgeIndexes = edgeIndexes;
+    }
+  }
+
+  /**
+   * Edge labels that get a vertex-centric index on creationDate, newest
+   * first, when loading with --edgeIndexes.
+   */
+  public static final String[] CREATION_DATE_EDGE_LABELS = {
+      "hasCreator",
+      "knows",
+      "likes",
+      "replyOf"
+  };
+
+  /*
+   * Edge labels whose creationDate is that of the message at their out
+   * vertex, rather than a column of their edge file.
+   */
+  private static final Set<String> MESSAGE_DATE_EDGE_LABELS =
+      new HashSet<>(Arrays.asList("hasCreator", "replyOf"));
+
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  /*
+   * Properties stored as Long and Integer values instead of Strings when
+   * loading with --typedSchema. Dates are stored in milliseconds since the
+   * epoch either way.
+   */
+  private static final Set<String> LONG_PROP_KEYS = new HashSet<>(
+      Arrays.asList("birthday", "creationDate", "joinDate"));
+
+  private static final Set<String> INTEGER_PROP_KEYS = new HashSet<>(
+      Arrays.asList("classYear", "length", "workFrom"));
+
+  /*
+   * Files smaller than this are never split into multiple ranges for parallel
+   * loading.
+   */
+  private static final long MIN_SPLIT_BYTES = 16 * 1024 * 1024;
+
+  /*
+   * A range of lines of a dataset file that is loaded as one unit of work,
+   * together with the column names taken from the file's header line and the
+   * checkpoint recording its progress, if any.
+   */
+  private static class FileSplit {
+
+    final Path filePath;
+    final String[] colNames;
+    final long start;
+    final long end;
+    final SplitCheckpoint checkpoint;
+
+    FileSplit(Path filePath, String[] colNames, long start, long end) {
+      this(filePath, colNames, start, end, null);
+    }
+
+    FileSplit(Path filePath, String[] colNames, long start, long end,
+              SplitCheckpoint checkpoint) {
+      this.filePath = filePath;
+      this.colNames = colNames;
+      this.start = start;
+      this.end = end;
+      this.checkpoint = checkpoint;
+    }
+  }
+
+  /*
+   * Records how far the loading of one range of a dataset file has got, in a
+   * small properties file that is atomically replaced after every committed
+   * transaction. The range [start, position) holds the lines committed so far.
+   *
+   * A crash between a commit and the following checkpoint write makes a
+   * resumed load replay the lines of that one transaction. Batch loading
+   * does not stop those from being inserted twice, so the loaders check for
+   * each element of the first batch of a resumed range before adding it.
+   */
+  static class SplitCheckpoint {
+
+    private static final String SUFFIX = ".checkpoint";
+
+    final Path checkpointFile;
+    final String fileName;
+    final long start;
+    final long end;
+    long position;
+    long lineCount;
+    boolean done;
+
+    /*
+     * End offsets of the lines of the batch being committed, and how many of
+     * them have been committed.
+     */
+    private long[] batchLineEnds;
+    private int batchLinesCommitted;
+
+    /*
+     * Whether this range was resumed and its first batch is yet to be read,
+     * and whether the batch being loaded is that first batch.
+     */
+    private boolean resumed;
+    private boolean replaying;
+
+    private SplitCheckpoint(Path checkpointDir, String fileName, long start,
+                            long end) {
+      this.checkpointFile =
+          checkpointDir.resolve(fileName + "." + start + SUFFIX);
+      this.fileName = fileName;
+      this.start = start;
+      this.end = end;
+      this.position = start;
+      this.lineCount = 0;
+      this.done = false;
+    }
+
+    /*
+     * Creates and writes the checkpoint of a range that has not been loaded
+     * yet.
+     */
+    static SplitCheckpoint create(Path checkpointDir, String fileName,
+                                  long start, long end) throws IOException {
+      SplitCheckpoint checkpoint =
+          new SplitCheckpoint(checkpointDir, fileName, start, end);
+      checkpoint.write();
+      return checkpoint;
+    }
+
+    /*
+     * Reads the checkpoints of all ranges of the given file, ordered by their
+     * position in the file. Returns an empty list if the file has none.
+     */
+    static List<SplitCheckpoint> readAll(Path checkpointDir, String fileName)
+        throws IOException {
+      List<SplitCheckpoint> checkpoints = new ArrayList<>();
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(
+          checkpointDir, fileName + ".*" + SUFFIX)) {
+        for (Path file : files) {
+          Properties props = new Properties();
+          try (Reader in = Files.newBufferedReader(file,
+              StandardCharsets.UTF_8)) {
+            props.load(in);
+          }
+          if (!fileName.equals(props.getProperty("file"))) {
+            continue;
+          }
+          SplitCheckpoint checkpoint = new SplitCheckpoint(checkpointDir,
+              fileName, Long.parseLong(props.getProperty("start")),
+              Long.parseLong(props.getProperty("end")));
+          checkpoint.position = Long.parseLong(props.getProperty("position"));
+          checkpoint.lineCount = Long.parseLong(props.getProperty("lines"));
+          checkpoint.done = Boolean.parseBoolean(props.getProperty("done"));
+          checkpoint.resumed = !checkpoint.done;
+          checkpoints.add(checkpoint);
+        }
+      }
+      checkpoints.sort(Comparator.comparingLong(c -> c.start));
+      return checkpoints;
+    }
+
+    /*
+     * Deletes the checkpoints of all ranges of all files.
+     */
+    static void deleteAll(Path checkpointDir) throws IOException {
+      try (DirectoryStream<Path> files =
+               Files.newDirectoryStream(checkpointDir, "*" + SUFFIX)) {
+        for (Path file : files) {
+          Files.delete(file);
+        }
+      }
+    }
+
+    void batchRead(long[] lineEnds) {
+      batchLineEnds = lineEnds;
+      batchLinesCommitted = 0;
+      replaying = resumed;
+      resumed = false;
+    }
+
+    /*
+     * True while loading the first batch of a resumed range, which an earlier
+     * run may already have committed, in whole or in part.
+     */
+    boolean replaying() {
+      return replaying;
+    }
+
+    /*
+     * Called after each committed transaction. The lines of a batch are
+     * always committed in order.
+     */
+    void linesCommitted(int lines) throws IOException {
+      batchLinesCommitted += lines;
+      position = batchLineEnds[batchLinesCommitted - 1];
+      lineCount += lines;
+      write();
+    }
+
+    void finished() throws IOException {
+      done = true;
+      write();
+    }
+
+    private void write() throws IOException {
+      Properties props = new Properties();
+      props.setProperty("file", fileName);
+      props.setProperty("start", String.valueOf(start));
+      props.setProperty("end", String.valueOf(end));
+      props.setProperty("position", String.valueOf(position));
+      props.setProperty("lines", String.valueOf(lineCount));
+      props.setProperty("done", String.valueOf(done));
+
+      Path tmpFile = checkpointFile.resolveSibling(
+          checkpointFile.getFileName() + ".tmp");
+      try (Writer out = Files.newBufferedWriter(tmpFile,
+          StandardCharsets.UTF_8)) {
+        props.store(out, null);
+      }
+      Files.move(tmpFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /*
+   * Jittered exponential backoff between attempts to commit a transaction.
+   * The n-th consecutive failure waits between half and all of
+   * min(maxMillis, baseMillis * 2^(n-1)), so that threads which failed
+   * together against an overloaded backend do not all come back at once.
+   */
+  private static class TxRetryPolicy {
+
+    final long baseMillis;
+    final long maxMillis;
+
+    TxRetryPolicy(long baseMillis, long maxMillis) {
+      this.baseMillis = baseMillis;
+      this.maxMillis = maxMillis;
+    }
+
+    /*
+     * Sleeps after the given number of consecutive failures and returns the
+     * number of milliseconds slept.
+     */
+    long backoff(int failures) {
+      int shift = Math.min(Math.max(failures - 1, 0), 30);
+      long ceiling = Math.min(maxMillis, baseMillis << shift);
+      long delay = ceiling / 2
+          + ThreadLocalRandom.current().nextLong(ceiling - ceiling / 2 + 1);
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(
+            "ERROR: Interrupted while waiting to retry transaction", e);
+      }
+      return delay;
+    }
+  }
+
+  /*
+   * Tracks the number of lines committed and transactions retried by all
+   * threads loading a phase of the dataset, and prints a progress report
+   * every progReportPeriod seconds.
+   */
+  private static class LoadProgress {
+
+    final boolean printLoadingDots;
+    final long progReportPeriod;
+    final long startTime;
+    final AtomicLong nextProgReportTime;
+    final AtomicLong lineCount;
+    final AtomicLong lastLineCount;
+    final AtomicLong retryCount;
+    final AtomicLong lastRetryCount;
+    final AtomicLong backoffMillis;
+    final AtomicLong lastBackoffMillis;
+
+    LoadProgress(boolean printLoadingDots, long progReportPeriod) {
+      this.printLoadingDots = printLoadingDots;
+      this.progReportPeriod = progReportPeriod;
+      this.startTime = System.currentTimeMillis();
+      this.nextProgReportTime =
+          new AtomicLong(startTime + progReportPeriod * 1000);
+      this.lineCount = new AtomicLong(0);
+      this.lastLineCount = new AtomicLong(0);
+      this.retryCount = new AtomicLong(0);
+      this.lastRetryCount = new AtomicLong(0);
+      this.backoffMillis = new AtomicLong(0);
+      this.lastBackoffMillis = new AtomicLong(0);
+    }
+
+    void txRetried(long millisBackedOff) {
+      retryCount.incrementAndGet();
+      backoffMillis.addAndGet(millisBackedOff);
+    }
+
+    void linesCommitted(long lines) {
+      long totalLines = lineCount.addAndGet(lines);
+
+      long now = System.currentTimeMillis();
+      long reportTime = nextProgReportTime.get();
+      if (printLoadingDots && now > reportTime && nextProgReportTime
+          .compareAndSet(reportTime, reportTime + progReportPeriod * 1000)) {
+        long timeElapsed = now - startTime;
+        long linesLoaded = totalLines - lastLineCount.getAndSet(totalLines);
+        long totalRetries = retryCount.get();
+        long retries = totalRetries - lastRetryCount.getAndSet(totalRetries);
+        long totalBackoff = backoffMillis.get();
+        long backoff = totalBackoff - lastBackoffMillis.getAndSet(totalBackoff);
+        System.out.printf(
+            "Time Elapsed: %03dm.%02ds, Lines Loaded: +%d, "
+                + "Tx Retries: +%d (%d.%03ds backoff)%n",
+            (timeElapsed / 1000) / 60, (timeElapsed / 1000) % 60, linesLoaded,
+            retries, backoff / 1000, backoff % 1000);
+      }
+    }
+  }
+
+  /*
+   * Adds the graph elements described by one line of a dataset file to the
+   * calling thread's transaction. Told whether the lines it loaded since the
+   * last notification were committed or rolled back.
+   */
+  private interface LineLoader {
+
+    void load(String line) throws java.text.ParseException;
+
+    default void committed() {
+    }
+
+    default void aborted() {
+    }
+  }
+
+  /*
+   * Loads the given lines in one transaction and commits it, backing off and
+   * retrying when the commit fails. A run of lines that fails
+   * TX_SPLIT_AFTER_FAILURES times in a row is split in half and the halves
+   * are committed in order, so a line the backend keeps rejecting only costs
+   * replays of ever smaller runs around it rather than of the whole batch.
+   * Gives up once a single line has failed TX_MAX_RETRIES times. The range's
+   * checkpoint, if any, is advanced after every successful commit.
+   */
+  private static void commitLines(Graph graph, List<String> lines,
+                                  LineLoader loader, LoadProgress progress, SplitCheckpoint checkpoint,
+                                  String location)
       throws IOException, java.text.ParseException {
+    int failures = 0;
+    while (true) {
+      // A line that cannot be loaded is not retried, but must not leave a
+      // partial batch behind in the thread's transaction.
+      try {
+        for (String line : lines) {
+          loader.load(line);
+        }
+      } catch (java.text.ParseException | RuntimeException e) {
+        loader.aborted();
+        if (graph.tx().isOpen()) {
+          graph.tx().rollback();
+        }
+        throw e;
+      }
 
-    String[] colNames = null;
-    SimpleDateFormat birthdayDateFormat = new SimpleDateFormat("yyyy-MM-dd");
-    birthdayDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+      Exception failure = null;
+      try {
+        graph.tx().commit();
+      } catch (Exception e) {
+        failure = e;
+      }
+
+      if (failure == null) {
+        loader.committed();
+        if (checkpoint != null) {
+          checkpoint.linesCommitted(lines.size());
+        }
+        progress.linesCommitted(lines.size());
+        return;
+      }
+
+      loader.aborted();
+      if (graph.tx().isOpen()) {
+        graph.tx().rollback();
+      }
+      failures++;
+
+      if (lines.size() == 1 && failures > TX_MAX_RETRIES) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times on line \"%s\" (%s), "
+                + "aborting...", failures, lines.get(0), location), failure);
+      }
+
+      progress.txRetried(TX_RETRY_POLICY.backoff(failures));
+
+      if (lines.size() > 1 && failures >= TX_SPLIT_AFTER_FAILURES) {
+        int mid = lines.size() / 2;
+        commitLines(graph, lines.subList(0, mid), loader, progress,
+            checkpoint, location);
+        commitLines(graph, lines.subList(mid, lines.size()), loader, progress,
+            checkpoint, location);
+        return;
+      }
+    }
+  }
+
+  /*
+   * Cuts the data lines of the given file (all lines but the header) into at
+   * most maxSplits ranges of roughly equal size. Files below MIN_SPLIT_BYTES
+   * are always returned as a single range. An empty file yields no ranges.
+   */
+  private static List<FileSplit> splitFile(Path filePath, int maxSplits)
+      throws IOException {
+    String[] colNames;
+    long dataStart;
+    try (CsvLineReader reader =
+             new CsvLineReader(filePath, 0, Long.MAX_VALUE)) {
+      String header = reader.readLine();
+      if (header == null) {
+        return new ArrayList<>();
+      }
+      colNames = header.split("\\|");
+      dataStart = reader.position();
+    }
+
+    long dataSize = Files.size(filePath) - dataStart;
+    int splitCount =
+        (int) Math.max(1, Math.min(maxSplits, dataSize / MIN_SPLIT_BYTES));
+    long splitSize = dataSize / splitCount;
+
+    List<FileSplit> splits = new ArrayList<>(splitCount);
+    for (int i = 0; i < splitCount; i++) {
+      long start = dataStart + i * splitSize;
+      long end = (i == splitCount - 1) ? Long.MAX_VALUE : start + splitSize;
+      splits.add(new FileSplit(filePath, colNames, start, end));
+    }
+    return splits;
+  }
+
+  /*
+   * Returns the ranges in which to load the given file, each with its
+   * checkpoint. On a fresh load the file is split for up to maxSplits threads
+   * and the checkpoints of all ranges are written before any of them is
+   * loaded, so that a resumed load sees the complete set. When resuming, the
+   * ranges recorded by an earlier run are returned instead, starting after
+   * their last committed line; completed ranges are returned too, marked
+   * done.
+   */
+  private static List<FileSplit> planSplits(Path filePath, int maxSplits,
+                                            Path checkpointDir, boolean resume) throws IOException {
+    String fileName = filePath.getFileName().toString();
+    List<SplitCheckpoint> checkpoints = resume
+        ? SplitCheckpoint.readAll(checkpointDir, fileName)
+        : new ArrayList<>();
+
+    List<FileSplit> splits = new ArrayList<>();
+    if (checkpoints.isEmpty()) {
+      for (FileSplit split : splitFile(filePath, maxSplits)) {
+        splits.add(new FileSplit(filePath, split.colNames, split.start,
+            split.end, SplitCheckpoint.create(checkpointDir, fileName,
+            split.start, split.end)));
+      }
+    } else {
+      String[] colNames;
+      try (CsvLineReader reader =
+               new CsvLineReader(filePath, 0, Long.MAX_VALUE)) {
+        colNames = reader.readLine().split("\\|");
+      }
+      for (SplitCheckpoint checkpoint : checkpoints) {
+        splits.add(new FileSplit(filePath, colNames, checkpoint.position,
+            checkpoint.end, checkpoint));
+      }
+    }
+    return splits;
+  }
+
+  private static String describeSplits(List<FileSplit> splits) {
+    long doneCount = splits.stream().filter(s -> s.checkpoint.done).count();
+    long resumedCount = splits.stream().filter(s -> !s.checkpoint.done
+        && s.checkpoint.position > s.checkpoint.start).count();
+    String description = "(" + splits.size() + " ranges";
+    if (doneCount > 0) {
+      description += ", " + doneCount + " already loaded";
+    }
+    if (resumedCount > 0) {
+      description += ", " + resumedCount + " resumed";
+    }
+    return description + ")";
+  }
+
+  /*
+   * Reads the next batch of at most batchSize lines from the reader into the
+   * given buffer, replacing its previous contents. Only one batch of a file is
+   * ever held in memory, so heap usage stays bounded by the batch size no
+   * matter how large the input file is. Returns false once the end of the
+   * file has been reached and no more lines could be read. If lineEnds is not
+   * null, the offset just past each line read is stored at the line's index.
+   */
+  private static boolean readBatch(CsvLineReader reader, List<String> batch,
+                                   long[] lineEnds, int batchSize) throws IOException {
+    batch.clear();
+    String line;
+    while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+      if (lineEnds != null) {
+        lineEnds[batch.size()] = reader.position();
+      }
+      batch.add(line);
+    }
+    return !batch.isEmpty();
+  }
+
+  /*
+   * Returns the TitanDB vertex with the given LDBC SNB ID, as recorded in the
+   * given entity's ID map while its vertices were loaded.
+   */
+  private static Vertex getVertex(Graph graph,
+                                  Map<String, LongLongHashMap> vertexIds, String entityName,
+                                  String snbId) {
+    LongLongHashMap ids = vertexIds.get(entityName);
+    long vertexId = (ids == null) ? -1 : ids.get(Long.parseLong(snbId), -1);
+    if (vertexId == -1) {
+      throw new RuntimeException(String.format(
+          "ERROR: No vertex loaded for %s:%s", entityName, snbId));
+    }
+    return graph.vertices(vertexId).next();
+  }
+
+  /*
+   * Returns true if the graph already has an edge with the given label from
+   * one vertex to the other.
+   */
+  private static boolean hasEdge(Vertex from, String label, Vertex to) {
+    Iterator<Vertex> neighbours = from.vertices(Direction.OUT, label);
+    while (neighbours.hasNext()) {
+      if (neighbours.next().id().equals(to.id())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Puts the TitanDB vertex IDs of the vertices that an earlier run loaded
+   * from the lines starting in [start, end) of the given vertex file into the
+   * entity's ID map, looking them up batchSize at a time on the byIid index,
+   * or the entity's snbId index. Creation dates are re-read from the file.
+   */
+  private static void rebuildVertexIds(Graph graph, Path filePath,
+                                       String[] colNames, long start, long end,
+                                       Map<String, LongLongHashMap> vertexIds,
+                                       Map<String, LongLongHashMap> creationDates, int batchSize,
+                                       SchemaOptions schema)
+      throws IOException, java.text.ParseException {
+    String entityName = filePath.getFileName().toString().split("_")[0];
+    LongLongHashMap ids =
+        vertexIds.computeIfAbsent(entityName, k -> new LongLongHashMap());
+    LongLongHashMap dates =
+        (creationDates == null) ? null : creationDates.get(entityName);
+    int idCol = Arrays.asList(colNames).indexOf("id");
+    int dateCol = Arrays.asList(colNames).indexOf("creationDate");
     SimpleDateFormat creationDateDateFormat =
         new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
     creationDateDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-    String[] fileNameParts = filePath.getFileName().toString().split("_");
-    String entityName = fileNameParts[0];
+    GraphTraversalSource g = graph.traversal();
+
+    try (CsvLineReader reader = new CsvLineReader(filePath, start, end)) {
+      List<String> batch = new ArrayList<>(batchSize);
+      List<Long> snbIds = new ArrayList<>(batchSize);
+      List<String> iids = new ArrayList<>(batchSize);
+      while (readBatch(reader, batch, null, batchSize)) {
+        snbIds.clear();
+        iids.clear();
+        for (String line : batch) {
+          String[] colVals = line.split("\\|");
+          String snbId = colVals[idCol];
+          snbIds.add(Long.parseLong(snbId));
+          iids.add(entityName + ":" + snbId);
+          if (dates != null) {
+            long date = creationDateDateFormat.parse(colVals[dateCol])
+                .getTime();
+            synchronized (dates) {
+              dates.put(Long.parseLong(snbId), date);
+            }
+          }
+        }
 
-    List<String> lines = Files.readAllLines(filePath);
-    colNames = lines.get(0).split("\\|");
-    long lineCount = 0;
-    boolean txSucceeded;
-    long txFailCount;
+        List<Vertex> vertices;
+        if (schema.numericIds) {
+          vertices = g.V().hasLabel(entityName)
+              .has("snbId", P.within(snbIds)).toList();
+        } else {
+          vertices = g.V().has("iid", P.within(iids)).toList();
+        }
+        if (vertices.size() != batch.size()) {
+          throw new RuntimeException(String.format(
+              "ERROR: Found %d vertices on the index for the %d lines "
+                  + "checkpointed as loaded from %s, the graph is missing "
+                  + "or duplicates some of them", vertices.size(),
+              batch.size(), filePath.getFileName()));
+        }
 
-    // For progress reporting
-    long startTime = System.currentTimeMillis();
-    long nextProgReportTime = startTime + progReportPeriod * 1000;
-    long lastLineCount = 0;
+        synchronized (ids) {
+          for (Vertex v : vertices) {
+            long snbId;
+            if (schema.numericIds) {
+              snbId = v.<Long>value("snbId");
+            } else {
+              String iid = v.value("iid");
+              snbId = Long.parseLong(iid.substring(iid.indexOf(':') + 1));
+            }
+            ids.put(snbId, ((Number) v.id()).longValue());
+          }
+        }
 
-    for (int startIndex = 1; startIndex < lines.size();
-         startIndex += batchSize) {
-      int endIndex = Math.min(startIndex + batchSize, lines.size());
-      txSucceeded = false;
-      txFailCount = 0;
-      do {
-        for (int i = startIndex; i < endIndex; i++) {
-          String line = lines.get(i);
+        // Don't let the read transaction's cache grow with the file.
+        graph.tx().rollback();
+      }
+    }
+  }
 
-          String[] colVals = line.split("\\|");
+  /*
+   * Returns the date to store for a date column, as a Long in the typed schema
+   * and as a String otherwise.
+   */
+  private static Object dateValue(long millis, SchemaOptions schema) {
+    if (schema.typedSchema) {
+      return millis;
+    }
+    return String.valueOf(millis);
+  }
+
+  /*
+   * Returns the value to store for a column that is not a date.
+   */
+  private static Object propertyValue(String key, String value,
+                                      SchemaOptions schema) {
+    if (schema.typedSchema && INTEGER_PROP_KEYS.contains(key)) {
+      return Integer.valueOf(value);
+    }
+    return value;
+  }
 
-          //changed s.t. multiple properties on same key are correctly identified as list
-          List<Object> keyValues = new ArrayList<>();
-          keyValues.add(T.label);
-          keyValues.add(entityName);
+  public static void loadVertices(Graph graph, Path filePath,
+                                  Map<String, LongLongHashMap> vertexIds,
+                                  Map<String, LongLongHashMap> creationDates,
+                                  boolean printLoadingDots, int batchSize, long progReportPeriod,
+                                  SchemaOptions schema)
+      throws IOException, java.text.ParseException {
+    LoadProgress progress =
+        new LoadProgress(printLoadingDots, progReportPeriod);
+    for (FileSplit split : splitFile(filePath, 1)) {
+      loadVertices(graph, split, vertexIds, creationDates, progress,
+          batchSize, schema);
+    }
+  }
+
+  private static void loadVertices(Graph graph, FileSplit split,
+                                   Map<String, LongLongHashMap> vertexIds,
+                                   Map<String, LongLongHashMap> creationDates, LoadProgress progress,
+                                   int batchSize, SchemaOptions schema)
+      throws IOException, java.text.ParseException {
 
-          for (int j = 0; j < colVals.length; ++j) {
-            if (colNames[j].equals("id")) {
+    String[] colNames = split.colNames;
+    SimpleDateFormat birthdayDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    birthdayDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    SimpleDateFormat creationDateDateFormat =
+        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    creationDateDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    String fileName = split.filePath.getFileName().toString();
+    String[] fileNameParts = fileName.split("_");
+    String entityName = fileNameParts[0];
+    LongLongHashMap ids =
+        vertexIds.computeIfAbsent(entityName, k -> new LongLongHashMap());
+    LongLongHashMap dates =
+        (creationDates == null) ? null : creationDates.get(entityName);
+    int idCol = Arrays.asList(colNames).indexOf("id");
+    int dateCol = Arrays.asList(colNames).indexOf("creationDate");
+    GraphTraversalSource g = graph.traversal();
+
+    /*
+     * Remembers the vertices added by the current transaction so that only
+     * the IDs of vertices that made it into the graph are recorded. Splits of
+     * the same entity share one ID map.
+     */
+    LineLoader loader = new LineLoader() {
+      final List<Long> pendingSnbIds = new ArrayList<>(batchSize);
+      final List<Vertex> pendingVertices = new ArrayList<>(batchSize);
+      final List<Long> pendingDates = new ArrayList<>(batchSize);
+
+      @Override
+      public void load(String line) throws java.text.ParseException {
+        String[] colVals = line.split("\\|");
+
+        if (split.checkpoint != null && split.checkpoint.replaying()) {
+          long snbId = Long.parseLong(colVals[idCol]);
+          List<Vertex> loaded = schema.numericIds
+              ? g.V().hasLabel(entityName).has("snbId", snbId).toList()
+              : g.V().has("iid", entityName + ":" + snbId).toList();
+          if (!loaded.isEmpty()) {
+            pendingSnbIds.add(snbId);
+            pendingVertices.add(loaded.get(0));
+            if (dates != null) {
+              pendingDates.add(
+                  creationDateDateFormat.parse(colVals[dateCol]).getTime());
+            }
+            return;
+          }
+        }
+
+        //changed s.t. multiple properties on same key are correctly identified as list
+        List<Object> keyValues = new ArrayList<>();
+        keyValues.add(T.label);
+        keyValues.add(entityName);
+
+        for (int j = 0; j < colVals.length; ++j) {
+          if (colNames[j].equals("id")) {
+            pendingSnbIds.add(Long.parseLong(colVals[j]));
+            if (schema.numericIds) {
+              keyValues.add("snbId");
+              keyValues.add(Long.parseLong(colVals[j]));
+            } else {
               keyValues.add("iid");
               keyValues.add(entityName + ":" + colVals[j]);
-              //propertiesMap.put("iid", entityName + ":" + colVals[j]);
-            } else if (colNames[j].equals("birthday")) {
-              keyValues.add(colNames[j]);
-              keyValues.add(String.valueOf(birthdayDateFormat.parse(colVals[j]).getTime()));
-            } else if (colNames[j].equals("creationDate")) {
-              keyValues.add(colNames[j]);
-              keyValues.add(String.valueOf(creationDateDateFormat.parse(colVals[j]).getTime()));
-            } else if (colNames[j].equals("language")) {
-              String tmp = colVals[j];
-              String[] langs = tmp.split(";");
-              for(String lang : langs) {
-                keyValues.add("speaks");
-                keyValues.add(lang);
-              }
-            } else {
-              keyValues.add(colNames[j]);
-              keyValues.add(colVals[j]);
             }
+            //propertiesMap.put("iid", entityName + ":" + colVals[j]);
+          } else if (colNames[j].equals("birthday")) {
+            keyValues.add(colNames[j]);
+            keyValues.add(dateValue(
+                birthdayDateFormat.parse(colVals[j]).getTime(), schema));
+          } else if (colNames[j].equals("creationDate")) {
+            long creationDate =
+                creationDateDateFormat.parse(colVals[j]).getTime();
+            if (dates != null) {
+              pendingDates.add(creationDate);
+            }
+            keyValues.add(colNames[j]);
+            keyValues.add(dateValue(creationDate, schema));
+          } else if (colNames[j].equals("language")) {
+            String tmp = colVals[j];
+            String[] langs = tmp.split(";");
+            for(String lang : langs) {
+              keyValues.add("speaks");
+              keyValues.add(lang);
+            }
+          } else {
+            keyValues.add(colNames[j]);
+            keyValues.add(propertyValue(colNames[j], colVals[j], schema));
           }
+        }
 
-          graph.addVertex(keyValues.toArray());
+        pendingVertices.add(graph.addVertex(keyValues.toArray()));
+      }
 
-          lineCount++;
+      @Override
+      public void committed() {
+        synchronized (ids) {
+          for (int i = 0; i < pendingVertices.size(); i++) {
+            ids.put(pendingSnbIds.get(i),
+                ((Number) pendingVertices.get(i).id()).longValue());
+          }
         }
-
-        try {
-          graph.tx().commit();
-          txSucceeded = true;
-        } catch (Exception e) {
-          txFailCount++;
+        if (dates != null) {
+          synchronized (dates) {
+            for (int i = 0; i < pendingDates.size(); i++) {
+              dates.put(pendingSnbIds.get(i), pendingDates.get(i));
+            }
+          }
         }
+        aborted();
+      }
 
-        if (txFailCount > TX_MAX_RETRIES) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times (file lines [%d,%d]), " +
-                  "aborting...", txFailCount, startIndex, endIndex - 1));
-        }
-      } while (!txSucceeded);
+      @Override
+      public void aborted() {
+        pendingSnbIds.clear();
+        pendingVertices.clear();
+        pendingDates.clear();
+      }
+    };
 
-      if (printLoadingDots &&
-          (System.currentTimeMillis() > nextProgReportTime)) {
-        long timeElapsed = System.currentTimeMillis() - startTime;
-        long linesLoaded = lineCount - lastLineCount;
-        System.out.printf(
-            "Time Elapsed: %03dm.%02ds, Lines Loaded: +%d%n",
-            (timeElapsed / 1000) / 60, (timeElapsed / 1000) % 60, linesLoaded);
-        nextProgReportTime += progReportPeriod * 1000;
-        lastLineCount = lineCount;
+    CsvLineReader reader =
+        new CsvLineReader(split.filePath, split.start, split.end);
+    List<String> batch = new ArrayList<>(batchSize);
+    long[] lineEnds = new long[batchSize];
+    long batchStart = reader.position();
+
+    try {
+      while (readBatch(reader, batch, lineEnds, batchSize)) {
+        if (split.checkpoint != null) {
+          split.checkpoint.batchRead(lineEnds);
+        }
+        commitLines(graph, batch, loader, progress, split.checkpoint,
+            String.format("file %s, bytes [%d,%d)", fileName, batchStart,
+                reader.position()));
+        batchStart = reader.position();
       }
+    } finally {
+      reader.close();
+    }
+
+    if (split.checkpoint != null) {
+      split.checkpoint.finished();
     }
   }
 
@@ -215,119 +983,191 @@ public class TitanGraphLoader {
   }
   */
 
-  public static void loadEdges(Graph graph, Path filePath, boolean undirected,
-                               boolean printLoadingDots, int batchSize, long progReportPeriod)
+  public static void loadEdges(Graph graph, Path filePath,
+                               Map<String, LongLongHashMap> vertexIds,
+                               Map<String, LongLongHashMap> creationDates, boolean undirected,
+                               boolean printLoadingDots, int batchSize, long progReportPeriod,
+                               SchemaOptions schema)
       throws IOException, java.text.ParseException {
-    long count = 0;
-    String[] colNames = null;
-    boolean firstLine = true;
-    Map<Object, Object> propertiesMap;
+    LoadProgress progress =
+        new LoadProgress(printLoadingDots, progReportPeriod);
+    for (FileSplit split : splitFile(filePath, 1)) {
+      loadEdges(graph, split, vertexIds, creationDates, undirected, progress,
+          batchSize, schema);
+    }
+  }
+
+  private static void loadEdges(Graph graph, FileSplit split,
+                                Map<String, LongLongHashMap> vertexIds,
+                                Map<String, LongLongHashMap> creationDates, boolean undirected,
+                                LoadProgress progress, int batchSize, SchemaOptions schema)
+      throws IOException, java.text.ParseException {
+    String[] colNames = split.colNames;
     SimpleDateFormat creationDateDateFormat =
         new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
     creationDateDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
     SimpleDateFormat joinDateDateFormat =
         new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
     joinDateDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-    String[] fileNameParts = filePath.getFileName().toString().split("_");
+    String fileName = split.filePath.getFileName().toString();
+    String[] fileNameParts = fileName.split("_");
     String v1EntityName = fileNameParts[0];
     String edgeLabel = fileNameParts[1];
     String v2EntityName = fileNameParts[2];
 
-    List<String> lines = Files.readAllLines(filePath);
-    colNames = lines.get(0).split("\\|");
-    long lineCount = 0;
-    boolean txSucceeded;
-    long txFailCount;
+    // Edges that are sorted by the creation date of the message they start at.
+    LongLongHashMap v1Dates =
+        (creationDates != null && MESSAGE_DATE_EDGE_LABELS.contains(edgeLabel))
+            ? creationDates.get(v1EntityName) : null;
 
-    // For progress reporting
-    long startTime = System.currentTimeMillis();
-    long nextProgReportTime = startTime + progReportPeriod * 1000;
-    long lastLineCount = 0;
+    LineLoader loader = line -> {
+      String[] colVals = line.split("\\|");
 
-    for (int startIndex = 1; startIndex < lines.size();
-         startIndex += batchSize) {
-      int endIndex = Math.min(startIndex + batchSize, lines.size());
-      txSucceeded = false;
-      txFailCount = 0;
-      do {
-        for (int i = startIndex; i < endIndex; i++) {
-          String line = lines.get(i);
+      Vertex vertex1 =
+          getVertex(graph, vertexIds, v1EntityName, colVals[0]);
+      Vertex vertex2 =
+          getVertex(graph, vertexIds, v2EntityName, colVals[1]);
 
-          String[] colVals = line.split("\\|");
+      Map<Object, Object> propertiesMap = new HashMap<>();
+      if (v1Dates != null) {
+        long creationDate = v1Dates.get(Long.parseLong(colVals[0]), NO_DATE);
+        if (creationDate == NO_DATE) {
+          throw new RuntimeException(String.format(
+              "ERROR: No creation date loaded for %s:%s", v1EntityName,
+              colVals[0]));
+        }
+        propertiesMap.put("creationDate", dateValue(creationDate, schema));
+      }
+      for (int j = 2; j < colVals.length; ++j) {
+        if (colNames[j].equals("creationDate")) {
+          propertiesMap.put(colNames[j], dateValue(
+              creationDateDateFormat.parse(colVals[j]).getTime(), schema));
+        } else if (colNames[j].equals("joinDate")) {
+          propertiesMap.put(colNames[j], dateValue(
+              joinDateDateFormat.parse(colVals[j]).getTime(), schema));
+        } else {
+          propertiesMap.put(colNames[j],
+              propertyValue(colNames[j], colVals[j], schema));
+        }
+      }
 
-          GraphTraversalSource g = graph.traversal();
-          Vertex vertex1 =
-              g.V().has("iid", v1EntityName + ":" + colVals[0]).next();
-          Vertex vertex2 =
-              g.V().has("iid", v2EntityName + ":" + colVals[1]).next();
-
-          propertiesMap = new HashMap<>();
-          for (int j = 2; j < colVals.length; ++j) {
-            if (colNames[j].equals("creationDate")) {
-              propertiesMap.put(colNames[j], String.valueOf(
-                  creationDateDateFormat.parse(colVals[j]).getTime()));
-            } else if (colNames[j].equals("joinDate")) {
-              propertiesMap.put(colNames[j], String.valueOf(
-                  joinDateDateFormat.parse(colVals[j]).getTime()));
-            } else {
-              propertiesMap.put(colNames[j], colVals[j]);
-            }
-          }
+      List<Object> keyValues = new ArrayList<>();
+      propertiesMap.forEach((key, val) -> {
+        keyValues.add(key);
+        keyValues.add(val);
+      });
 
-          List<Object> keyValues = new ArrayList<>();
-          propertiesMap.forEach((key, val) -> {
-            keyValues.add(key);
-            keyValues.add(val);
-          });
+      boolean replaying =
+          split.checkpoint != null && split.checkpoint.replaying();
 
-          vertex1.addEdge(edgeLabel, vertex2, keyValues.toArray());
+      if (!replaying || !hasEdge(vertex1, edgeLabel, vertex2)) {
+        vertex1.addEdge(edgeLabel, vertex2, keyValues.toArray());
+      }
 
-          if (undirected) {
-            vertex2.addEdge(edgeLabel, vertex1, keyValues.toArray());
-          }
+      if (undirected
+          && (!replaying || !hasEdge(vertex2, edgeLabel, vertex1))) {
+        vertex2.addEdge(edgeLabel, vertex1, keyValues.toArray());
+      }
+    };
 
-          lineCount++;
-        }
+    CsvLineReader reader =
+        new CsvLineReader(split.filePath, split.start, split.end);
+    List<String> batch = new ArrayList<>(batchSize);
+    long[] lineEnds = new long[batchSize];
+    long batchStart = reader.position();
 
-        try {
-          graph.tx().commit();
-          txSucceeded = true;
-        } catch (Exception e) {
-          txFailCount++;
+    try {
+      while (readBatch(reader, batch, lineEnds, batchSize)) {
+        if (split.checkpoint != null) {
+          split.checkpoint.batchRead(lineEnds);
         }
+        commitLines(graph, batch, loader, progress, split.checkpoint,
+            String.format("file %s, bytes [%d,%d)", fileName, batchStart,
+                reader.position()));
+        batchStart = reader.position();
+      }
+    } finally {
+      reader.close();
+    }
 
-        if (txFailCount > TX_MAX_RETRIES) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times (file lines [%d,%d]), " +
-                  "aborting...", txFailCount, startIndex, endIndex - 1));
-        }
-      } while (!txSucceeded);
+    if (split.checkpoint != null) {
+      split.checkpoint.finished();
+    }
+  }
 
-      if (printLoadingDots &&
-          (System.currentTimeMillis() > nextProgReportTime)) {
-        long timeElapsed = System.currentTimeMillis() - startTime;
-        long linesLoaded = lineCount - lastLineCount;
-        System.out.println(String.format(
-            "Time Elapsed: %03dm.%02ds, Lines Loaded: +%d",
-            (timeElapsed / 1000) / 60, (timeElapsed / 1000) % 60, linesLoaded));
-        nextProgReportTime += progReportPeriod * 1000;
-        lastLineCount = lineCount;
+  /*
+   * Waits for the loading tasks of each file in turn and reports when all of
+   * a file's ranges have been loaded. Rethrows the first failure.
+   */
+  private static void awaitTasks(String fileKind,
+                                 Map<String, List<Future<?>>> fileTasks)
+      throws InterruptedException, ExecutionException {
+    for (Map.Entry<String, List<Future<?>>> entry : fileTasks.entrySet()) {
+      for (Future<?> task : entry.getValue()) {
+        task.get();
       }
+      System.out.println(
+          "Finished loading " + fileKind + " file " + entry.getKey());
     }
   }
 
   public static void main(String[] args) throws IOException {
+    if (!load(args)) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Loads a graph as directed by the given command line arguments, see
+   * main.
+   *
+   * @return True if the graph was loaded or help was requested, false if the
+   * arguments were invalid or loading failed, after logging why.
+   */
+  public static boolean load(String[] args) throws IOException {
     Options options = new Options();
     options.addOption("C", "cassandraLocator", true,
         "IP address of a cassandra server.");
+    options.addOption(null, "storageBackend", true,
+        "TitanDB storage backend to load into, cassandra or berkeleyje "
+            + "(default cassandra).");
+    options.addOption(null, "storageDirectory", true,
+        "Directory holding the graph when loading with the berkeleyje "
+            + "storage backend.");
     options.addOption(null, "batchSize", true,
         "Number of nodes/edges to load in a single transaction.");
     options.addOption(null, "graphName", true,
-        "Name of the graph instance.");
+        "Name of the graph instance. Required for the cassandra storage "
+            + "backend.");
     options.addOption(null, "input", true,
         "Input file directory.");
     options.addOption(null, "progReportPeriod", true,
         "How often, in seconds, to report loading progress (default 10s).");
+    options.addOption(null, "idMapDir", true,
+        "Directory in which to memory-map the SNB ID to vertex ID maps built "
+            + "during loading, instead of keeping them on the heap.");
+    options.addOption(null, "threads", true,
+        "Number of threads loading files, and ranges of large files, in "
+            + "parallel (default 1).");
+    options.addOption(null, "checkpointDir", true,
+        "Directory in which to record loading progress (default "
+            + "checkpoints/<graphName>).");
+    options.addOption(null, "resume", false,
+        "Resume an interrupted load from the checkpoints in checkpointDir "
+            + "instead of starting a new one.");
+    options.addOption(null, "typedSchema", false,
+        "Store dates and numeric properties as Long and Integer values "
+            + "instead of Strings. Queries must then be run with "
+            + "typedSchema=true.");
+    options.addOption(null, "numericIds", false,
+        "Identify vertices by their label and an indexed Long snbId property "
+            + "instead of an \"entity:id\" iid String. Queries must then be "
+            + "run with numericIds=true.");
+    options.addOption(null, "edgeIndexes", false,
+        "Index hasCreator, knows, likes and replyOf edges by creationDate, "
+            + "copying message creation dates onto hasCreator and replyOf "
+            + "edges. Requires --typedSchema. Queries must then be run with "
+            + "edgeIndexes=true.");
     options.addOption("h", "help", false,
         "Print usage.");
 
@@ -338,21 +1178,41 @@ public class TitanGraphLoader {
       cmd = parser.parse(options, args);
     } catch (ParseException ex) {
       logger.log(Level.SEVERE, null, ex);
-      return;
+      return false;
     }
 
     if (cmd.hasOption("h")) {
       formatter.printHelp("TitanGraphLoader", options);
-      return;
+      return true;
     }
 
     // Required parameters.
-    String cassandraLocator;
-    if (cmd.hasOption("cassandraLocator")) {
-      cassandraLocator = cmd.getOptionValue("cassandraLocator");
+    String storageBackend = "cassandra";
+    if (cmd.hasOption("storageBackend")) {
+      storageBackend = cmd.getOptionValue("storageBackend");
+    }
+
+    String cassandraLocator = null;
+    String storageDirectory = null;
+    if (storageBackend.equals("cassandra")) {
+      if (cmd.hasOption("cassandraLocator")) {
+        cassandraLocator = cmd.getOptionValue("cassandraLocator");
+      } else {
+        logger.log(Level.SEVERE,
+            "Missing required argument: cassandraLocator");
+        return false;
+      }
+    } else if (storageBackend.equals("berkeleyje")) {
+      if (cmd.hasOption("storageDirectory")) {
+        storageDirectory = cmd.getOptionValue("storageDirectory");
+      } else {
+        logger.log(Level.SEVERE,
+            "Missing required argument: storageDirectory");
+        return false;
+      }
     } else {
-      logger.log(Level.SEVERE, "Missing required argument: cassandraLocator");
-      return;
+      logger.log(Level.SEVERE, "Unsupported storageBackend: " + storageBackend);
+      return false;
     }
 
     int batchSize;
@@ -360,15 +1220,17 @@ public class TitanGraphLoader {
       batchSize = Integer.decode(cmd.getOptionValue("batchSize"));
     } else {
       logger.log(Level.SEVERE, "Missing required argument: batchSize");
-      return;
+      return false;
     }
 
-    String graphName;
+    // Names the cassandra keyspace. A berkeleyje graph is named by its
+    // directory, so there it only names the default checkpoint directory.
+    String graphName = "default";
     if (cmd.hasOption("graphName")) {
       graphName = cmd.getOptionValue("graphName");
-    } else {
+    } else if (storageBackend.equals("cassandra")) {
       logger.log(Level.SEVERE, "Missing required argument: graphName");
-      return;
+      return false;
     }
 
     String inputBaseDir;
@@ -376,7 +1238,7 @@ public class TitanGraphLoader {
       inputBaseDir = cmd.getOptionValue("input");
     } else {
       logger.log(Level.SEVERE, "Missing required argument: input");
-      return;
+      return false;
     }
 
     long progReportPeriod = 10;
@@ -384,16 +1246,49 @@ public class TitanGraphLoader {
       progReportPeriod = Long.decode(cmd.getOptionValue("progReportPeriod"));
     }
 
+    Path idMapDir = null;
+    if (cmd.hasOption("idMapDir")) {
+      idMapDir = Paths.get(cmd.getOptionValue("idMapDir"));
+    }
+
+    int threads = 1;
+    if (cmd.hasOption("threads")) {
+      threads = Integer.decode(cmd.getOptionValue("threads"));
+    }
+
+    Path checkpointDir = Paths.get("checkpoints", graphName);
+    if (cmd.hasOption("checkpointDir")) {
+      checkpointDir = Paths.get(cmd.getOptionValue("checkpointDir"));
+    }
+
+    boolean resume = cmd.hasOption("resume");
+
+    SchemaOptions schema = new SchemaOptions(cmd.hasOption("typedSchema"),
+        cmd.hasOption("numericIds"), cmd.hasOption("edgeIndexes"));
+    if (schema.edgeIndexes && !schema.typedSchema) {
+      logger.log(Level.SEVERE, "edgeIndexes requires typedSchema");
+      return false;
+    }
+
+    Files.createDirectories(checkpointDir);
+    if (!resume) {
+      SplitCheckpoint.deleteAll(checkpointDir);
+    }
+
     // Create the Titan graph client instance with several configuration
     // parameters
-    TitanGraph graph = TitanFactory.build()
-        .set("storage.backend", "cassandra")
-        .set("storage.hostname", cassandraLocator)
-        .set("storage.cassandra.keyspace", graphName)
+    TitanFactory.Builder graphConfig = TitanFactory.build()
+        .set("storage.backend", storageBackend)
         .set("storage.batch-loading", true)
-        .set("ids.block-size", 1000000)
-        //                .set("schema.default", "none")
-        .open();
+        .set("ids.block-size", 1000000);
+    //                .set("schema.default", "none")
+    if (storageBackend.equals("cassandra")) {
+      graphConfig.set("storage.hostname", cassandraLocator)
+          .set("storage.cassandra.keyspace", graphName);
+    } else {
+      graphConfig.set("storage.directory", storageDirectory);
+    }
+    TitanGraph graph = graphConfig.open();
 
     String[] vertexLabels = {
         "person",
@@ -454,75 +1349,155 @@ public class TitanGraphLoader {
     };
 
     /*
-     * Explicitly define the graph schema.
+     * Explicitly define the graph schema. A resumed load finds it already in
+     * place.
      *
      * Note: For unknown reasons, it seems that each modification to the
      * schema must be committed in its own transaction.
      */
-    try {
-      ManagementSystem mgmt;
+    if (!resume) {
+      try {
+        ManagementSystem mgmt;
+
+        // Declare all vertex labels.
+        for (String vLabel : vertexLabels) {
+          System.out.println(vLabel);
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.makeVertexLabel(vLabel).make();
+          mgmt.commit();
+        }
 
-      // Declare all vertex labels.
-      for (String vLabel : vertexLabels) {
-        System.out.println(vLabel);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makeVertexLabel(vLabel).make();
-        mgmt.commit();
-      }
+        // Declare all edge labels.
+        for (String eLabel : edgeLabels) {
+          System.out.println(eLabel);
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.makeEdgeLabel(eLabel).multiplicity(Multiplicity.SIMPLE).make();
+          mgmt.commit();
+        }
 
-      // Declare all edge labels.
-      for (String eLabel : edgeLabels) {
-        System.out.println(eLabel);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makeEdgeLabel(eLabel).multiplicity(Multiplicity.SIMPLE).make();
-        mgmt.commit();
-      }
+        // Delcare all properties with Cardinality.SINGLE
+        for (String propKey : singleCardPropKeys) {
+          System.out.println(propKey);
+          Class<?> dataType = String.class;
+          if (schema.typedSchema && LONG_PROP_KEYS.contains(propKey)) {
+            dataType = Long.class;
+          } else if (schema.typedSchema
+              && INTEGER_PROP_KEYS.contains(propKey)) {
+            dataType = Integer.class;
+          }
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.makePropertyKey(propKey).dataType(dataType)
+              .cardinality(Cardinality.SINGLE).make();
+          mgmt.commit();
+        }
 
-      // Delcare all properties with Cardinality.SINGLE
-      for (String propKey : singleCardPropKeys) {
-        System.out.println(propKey);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makePropertyKey(propKey).dataType(String.class)
-            .cardinality(Cardinality.SINGLE).make();
-        mgmt.commit();
-      }
+        // Declare all properties with Cardinality.LIST
+        for (String propKey : listCardPropKeys) {
+          System.out.println(propKey);
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.makePropertyKey(propKey).dataType(String.class)
+              .cardinality(Cardinality.LIST).make();
+          mgmt.commit();
+        }
 
-      // Declare all properties with Cardinality.LIST
-      for (String propKey : listCardPropKeys) {
-        System.out.println(propKey);
+        /*
+         * Create a special ID property where we will store the IDs of
+         * vertices in the SNB dataset, and a corresponding index. This is
+         * necessary because TitanDB generates its own IDs for graph
+         * vertices, but the benchmark references vertices by the ID they
+         * were originally assigned during dataset generation.
+         */
+        if (schema.numericIds) {
+          /*
+           * SNB IDs are only unique per entity, so each vertex label gets its
+           * own index on the numeric ID, and lookups need to name the label
+           * for TitanDB to pick the right one.
+           */
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.makePropertyKey("snbId").dataType(Long.class)
+              .cardinality(Cardinality.SINGLE).make();
+          mgmt.commit();
+
+          for (String vLabel : vertexLabels) {
+            String indexName = vLabel + "BySnbId";
+            mgmt = (ManagementSystem) graph.openManagement();
+            PropertyKey snbId = mgmt.getPropertyKey("snbId");
+            mgmt.buildIndex(indexName, Vertex.class).addKey(snbId)
+                .indexOnly(mgmt.getVertexLabel(vLabel)).buildCompositeIndex();
+            mgmt.commit();
+
+            mgmt.awaitGraphIndexStatus(graph, indexName).call();
+
+            mgmt = (ManagementSystem) graph.openManagement();
+            mgmt.updateIndex(mgmt.getGraphIndex(indexName),
+                SchemaAction.REINDEX).get();
+            mgmt.commit();
+          }
+        } else {
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.makePropertyKey("iid").dataType(String.class)
+              .cardinality(Cardinality.SINGLE).make();
+          mgmt.commit();
+
+          mgmt = (ManagementSystem) graph.openManagement();
+          PropertyKey iid = mgmt.getPropertyKey("iid");
+          mgmt.buildIndex("byIid", Vertex.class).addKey(iid).buildCompositeIndex();
+          mgmt.commit();
+
+          mgmt.awaitGraphIndexStatus(graph, "byIid").call();
+
+          mgmt = (ManagementSystem) graph.openManagement();
+          mgmt.updateIndex(mgmt.getGraphIndex("byIid"), SchemaAction.REINDEX)
+              .get();
+          mgmt.commit();
+        }
+
+        /*
+         * Index names too, so that queries can find the tags, places and
+         * organisations their parameters refer to by name.
+         */
         mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makePropertyKey(propKey).dataType(String.class)
-            .cardinality(Cardinality.LIST).make();
+        PropertyKey name = mgmt.getPropertyKey("name");
+        mgmt.buildIndex("byName", Vertex.class).addKey(name)
+            .buildCompositeIndex();
         mgmt.commit();
-      }
-
-      /*
-       * Create a special ID property where we will store the IDs of
-       * vertices in the SNB dataset, and a corresponding index. This is
-       * necessary because TitanDB generates its own IDs for graph
-       * vertices, but the benchmark references vertices by the ID they
-       * were originally assigned during dataset generation.
-       */
-      mgmt = (ManagementSystem) graph.openManagement();
-      mgmt.makePropertyKey("iid").dataType(String.class)
-          .cardinality(Cardinality.SINGLE).make();
-      mgmt.commit();
 
-      mgmt = (ManagementSystem) graph.openManagement();
-      PropertyKey iid = mgmt.getPropertyKey("iid");
-      mgmt.buildIndex("byIid", Vertex.class).addKey(iid).buildCompositeIndex();
-      mgmt.commit();
+        mgmt.awaitGraphIndexStatus(graph, "byName").call();
 
-      mgmt.awaitGraphIndexStatus(graph, "byIid").call();
+        mgmt = (ManagementSystem) graph.openManagement();
+        mgmt.updateIndex(mgmt.getGraphIndex("byName"), SchemaAction.REINDEX)
+            .get();
+        mgmt.commit();
 
-      mgmt = (ManagementSystem) graph.openManagement();
-      mgmt.updateIndex(mgmt.getGraphIndex("byIid"), SchemaAction.REINDEX)
-          .get();
-      mgmt.commit();
+        /*
+         * Vertex-centric indexes let queries for the newest edges of a
+         * vertex read just those edges from storage, already sorted, instead
+         * of fetching and sorting all of them.
+         */
+        if (schema.edgeIndexes) {
+          for (String eLabel : CREATION_DATE_EDGE_LABELS) {
+            String indexName = eLabel + "ByCreationDate";
+            mgmt = (ManagementSystem) graph.openManagement();
+            mgmt.buildEdgeIndex(mgmt.getEdgeLabel(eLabel), indexName,
+                Direction.BOTH, Order.decr,
+                mgmt.getPropertyKey("creationDate"));
+            mgmt.commit();
+
+            mgmt.awaitRelationIndexStatus(graph, indexName, eLabel).call();
+
+            mgmt = (ManagementSystem) graph.openManagement();
+            mgmt.updateIndex(mgmt.getRelationIndex(
+                mgmt.getEdgeLabel(eLabel), indexName), SchemaAction.REINDEX)
+                .get();
+            mgmt.commit();
+          }
+        }
 
-    } catch (Exception e) {
-      logger.log(Level.SEVERE, e.toString());
-      return;
+      } catch (Exception e) {
+        logger.log(Level.SEVERE, e.toString());
+        graph.close();
+        return false;
+      }
     }
 
     // TODO: Make file list generation programmatic. This method of loading,
@@ -574,18 +1549,77 @@ public class TitanGraphLoader {
         "tagclass_isSubclassOf_tagclass_0_0.csv"
     };
 
+    /*
+     * TitanDB vertex IDs of all loaded vertices, by entity and SNB ID. Edges
+     * are attached to their endpoints through these maps rather than through
+     * lookups on the byIid index.
+     */
+    Map<String, LongLongHashMap> vertexIds = new ConcurrentHashMap<>();
+    for (String vLabel : vertexLabels) {
+      vertexIds.put(vLabel, new LongLongHashMap(idMapDir));
+    }
+
+    /*
+     * Creation dates of messages by entity and SNB ID, for copying onto their
+     * hasCreator and replyOf edges.
+     */
+    Map<String, LongLongHashMap> creationDates = null;
+    if (schema.edgeIndexes) {
+      creationDates = new ConcurrentHashMap<>();
+      creationDates.put("comment", new LongLongHashMap(idMapDir));
+      creationDates.put("post", new LongLongHashMap(idMapDir));
+    }
+    Map<String, LongLongHashMap> messageDates = creationDates;
+
+    /*
+     * Every file is cut into up to one range per thread, and all ranges of
+     * all files of a phase are queued on the same pool. TitanDB hands each
+     * worker thread its own transaction, and batch-loading mode skips the
+     * consistency checks that would otherwise make concurrent loading unsafe.
+     */
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+
     try {
+      LoadProgress vertexProgress = new LoadProgress(true, progReportPeriod);
+      Map<String, List<Future<?>>> vertexTasks = new LinkedHashMap<>();
       for (String fileName : nodeFiles) {
         System.out.print("Loading node file " + fileName + " ");
         try {
-          loadVertices(graph, Paths.get(inputBaseDir + "/" + fileName),
-              true, batchSize, progReportPeriod);
-          System.out.println("Finished");
+          List<FileSplit> splits = planSplits(
+              Paths.get(inputBaseDir + "/" + fileName), threads,
+              checkpointDir, resume);
+          List<Future<?>> tasks = new ArrayList<>();
+          for (FileSplit split : splits) {
+            // Vertices loaded by an earlier run still need their IDs mapped
+            // for the edge phase.
+            SplitCheckpoint checkpoint = split.checkpoint;
+            boolean rebuild = checkpoint.position > checkpoint.start;
+            if (!rebuild && checkpoint.done) {
+              continue;
+            }
+            tasks.add(executor.submit(() -> {
+              if (rebuild) {
+                rebuildVertexIds(graph, split.filePath, split.colNames,
+                    checkpoint.start, checkpoint.position, vertexIds,
+                    messageDates, batchSize, schema);
+              }
+              if (!checkpoint.done) {
+                loadVertices(graph, split, vertexIds, messageDates,
+                    vertexProgress, batchSize, schema);
+              }
+              return null;
+            }));
+          }
+          vertexTasks.put(fileName, tasks);
+          System.out.println(describeSplits(splits));
         } catch (NoSuchFileException e) {
           System.out.println(" File not found.");
         }
       }
 
+      // Edges can only be loaded once all their endpoints are in place.
+      awaitTasks("node", vertexTasks);
+
       /*
       //these files no longer exist
       for (String fileName : propertiesFiles) {
@@ -600,27 +1634,46 @@ public class TitanGraphLoader {
       }
        */
 
+      LoadProgress edgeProgress = new LoadProgress(true, progReportPeriod);
+      Map<String, List<Future<?>>> edgeTasks = new LinkedHashMap<>();
       for (String fileName : edgeFiles) {
         System.out.print("Loading edge file " + fileName + " ");
+        boolean undirected = fileName.contains("person_knows_person");
         try {
-          if (fileName.contains("person_knows_person")) {
-            loadEdges(graph, Paths.get(inputBaseDir + "/" + fileName), true,
-                true, batchSize, progReportPeriod);
-          } else {
-            loadEdges(graph, Paths.get(inputBaseDir + "/" + fileName), false,
-                true, batchSize, progReportPeriod);
+          List<FileSplit> splits = planSplits(
+              Paths.get(inputBaseDir + "/" + fileName), threads,
+              checkpointDir, resume);
+          List<Future<?>> tasks = new ArrayList<>();
+          for (FileSplit split : splits) {
+            if (split.checkpoint.done) {
+              continue;
+            }
+            tasks.add(executor.submit(() -> {
+              loadEdges(graph, split, vertexIds, messageDates, undirected,
+                  edgeProgress, batchSize, schema);
+              return null;
+            }));
           }
-
-          System.out.println("Finished");
+          edgeTasks.put(fileName, tasks);
+          System.out.println(describeSplits(splits));
         } catch (NoSuchFileException e) {
           System.out.println(" File not found.");
         }
       }
+
+      awaitTasks("edge", edgeTasks);
+      return true;
     } catch (Exception e) {
       System.out.println("Exception: " + e);
       e.printStackTrace();
+      return false;
     } finally {
+      executor.shutdownNow();
       graph.close();
+      vertexIds.values().forEach(LongLongHashMap::close);
+      if (messageDates != null) {
+        messageDates.values().forEach(LongLongHashMap::close);
+      }
     }
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that ranges of a file cut at any byte offset together return every
+ * line of the file exactly once.
+ */
+public class CsvLineReaderTest extends TestCase {
+
+  private Path file;
+
+  @Override
+  protected void setUp() throws IOException {
+    file = Files.createTempFile("csvlinereader", ".csv");
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  public void testWholeFile() throws IOException {
+    write("id|name\n1|Alice\n2|Bob\n");
+    assertEquals(Arrays.asList("id|name", "1|Alice", "2|Bob"),
+        readRange(0, Files.size(file)));
+  }
+
+  public void testEverySplit() throws IOException {
+    write("id|name\n1|Alice\n22|Bob\n333|Carol\n");
+    assertEverySplitReads(
+        Arrays.asList("id|name", "1|Alice", "22|Bob", "333|Carol"));
+  }
+
+  public void testCrlfLineTerminators() throws IOException {
+    write("id|name\r\n1|Alice\r\n2|Bob\r\n");
+    assertEverySplitReads(Arrays.asList("id|name", "1|Alice", "2|Bob"));
+  }
+
+  public void testLastLineWithoutNewline() throws IOException {
+    write("id|name\n1|Alice\n2|Bob");
+    assertEverySplitReads(Arrays.asList("id|name", "1|Alice", "2|Bob"));
+  }
+
+  public void testLastLineWithoutNewlineAfterCrlf() throws IOException {
+    write("id|name\r\n1|Alice\r\n2|Bob");
+    assertEverySplitReads(Arrays.asList("id|name", "1|Alice", "2|Bob"));
+  }
+
+  public void testLineStraddlingSplit() throws IOException {
+    write("1|Alice\n2|Bob\n3|Carol\n");
+    // Offset 10 is in the middle of "2|Bob", which starts at offset 8.
+    assertEquals(Arrays.asList("1|Alice", "2|Bob"), readRange(0, 10));
+    assertEquals(Arrays.asList("3|Carol"), readRange(10, Files.size(file)));
+  }
+
+  public void testSplitAtLineStart() throws IOException {
+    write("1|Alice\n2|Bob\n3|Carol\n");
+    // Offset 8 is the first byte of "2|Bob".
+    assertEquals(Arrays.asList("1|Alice"), readRange(0, 8));
+    assertEquals(Arrays.asList("2|Bob", "3|Carol"),
+        readRange(8, Files.size(file)));
+  }
+
+  public void testRangeWithoutLineStart() throws IOException {
+    write("1|Alice\n2|Bob\n");
+    assertEquals(Arrays.asList(), readRange(2, 6));
+  }
+
+  public void testMultiByteCharacters() throws IOException {
+    write("1|Zo\u00eb\n2|J\u00fcrgen\n3|\u0141ukasz\n");
+    assertEverySplitReads(
+        Arrays.asList("1|Zo\u00eb", "2|J\u00fcrgen", "3|\u0141ukasz"));
+  }
+
+  public void testLinesLongerThanBuffer() throws IOException {
+    char[] chars = new char[100000];
+    Arrays.fill(chars, 'x');
+    String longLine = new String(chars);
+    write("1|" + longLine + "\n2|Bob\n3|" + longLine + "\n");
+    List<String> expected =
+        Arrays.asList("1|" + longLine, "2|Bob", "3|" + longLine);
+
+    assertEquals(expected, readRange(0, Files.size(file)));
+    for (long cut : new long[] {1, 50000, 100002, 100003, 100008, 150000}) {
+      List<String> lines = readRange(0, cut);
+      lines.addAll(readRange(cut, Files.size(file)));
+      assertEquals("cut at " + cut, expected, lines);
+    }
+  }
+
+  public void testPositionIsStartOfNextLine() throws IOException {
+    write("1|Alice\r\n2|Bob\n3|Carol");
+    try (CsvLineReader reader =
+             new CsvLineReader(file, 0, Files.size(file))) {
+      assertEquals(0, reader.position());
+      assertEquals("1|Alice", reader.readLine());
+      assertEquals(9, reader.position());
+      assertEquals("2|Bob", reader.readLine());
+      assertEquals(15, reader.position());
+      assertEquals("3|Carol", reader.readLine());
+      assertEquals(22, reader.position());
+      assertNull(reader.readLine());
+    }
+  }
+
+  private void write(String content) throws IOException {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<String> readRange(long start, long end) throws IOException {
+    List<String> lines = new ArrayList<>();
+    try (CsvLineReader reader = new CsvLineReader(file, start, end)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  /*
+   * Cuts the file into two ranges at every offset, and into three ranges at
+   * every pair of offsets, and checks that the ranges together return the
+   * expected lines in order.
+   */
+  private void assertEverySplitReads(List<String> expected)
+      throws IOException {
+    long size = Files.size(file);
+    for (long cut1 = 0; cut1 <= size; cut1++) {
+      for (long cut2 = cut1; cut2 <= size; cut2++) {
+        List<String> lines = readRange(0, cut1);
+        lines.addAll(readRange(cut1, cut2));
+        lines.addAll(readRange(cut2, size));
+        assertEquals(String.format("cuts at %d and %d", cut1, cut2),
+            expected, lines);
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Tests LongLongHashMap on the heap and spilled to memory-mapped files, with
+ * enough entries for every segment to grow several times.
+ */
+public class LongLongHashMapTest extends TestCase {
+
+  private static final int NUM_KEYS = 100000;
+
+  private Path spillDir;
+
+  @Override
+  protected void setUp() throws IOException {
+    spillDir = Files.createTempDirectory("longlonghashmap");
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDir)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(spillDir);
+  }
+
+  public void testPutGetAcrossResizeOnHeap() {
+    assertPutGetAcrossResize(new LongLongHashMap());
+  }
+
+  public void testPutGetAcrossResizeSpilled() {
+    assertPutGetAcrossResize(new LongLongHashMap(spillDir));
+  }
+
+  public void testReplaceValue() {
+    LongLongHashMap map = new LongLongHashMap();
+    map.put(42, 1);
+    map.put(42, 2);
+    assertEquals(1, map.size());
+    assertEquals(2, map.get(42, -1));
+    map.close();
+  }
+
+  public void testExtremeKeys() {
+    LongLongHashMap map = new LongLongHashMap(spillDir);
+    long[] keys = {0, -1, 1, Long.MAX_VALUE, Long.MIN_VALUE + 1};
+    for (int i = 0; i < keys.length; i++) {
+      map.put(keys[i], i);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(i, map.get(keys[i], -1));
+    }
+    assertEquals(keys.length, map.size());
+    map.close();
+  }
+
+  public void testReservedKeyIsRejected() {
+    LongLongHashMap map = new LongLongHashMap();
+    try {
+      map.put(Long.MIN_VALUE, 1);
+      fail("Long.MIN_VALUE was accepted as a key");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+    assertEquals(0, map.size());
+    map.close();
+  }
+
+  /*
+   * Puts sequential IDs, as the loader does, and random ones, checking after
+   * every step that earlier entries survived the resizes in between.
+   */
+  private void assertPutGetAcrossResize(LongLongHashMap map) {
+    Random random = new Random(NUM_KEYS);
+    long[] keys = new long[NUM_KEYS];
+    for (int i = 0; i < NUM_KEYS; i++) {
+      keys[i] = (i % 2 == 0) ? i : random.nextLong() | 1L;
+      map.put(keys[i], ~keys[i]);
+      if (i % 10000 == 0) {
+        for (int j = 0; j <= i; j++) {
+          assertEquals(~keys[j], map.get(keys[j], 0));
+        }
+      }
+    }
+
+    assertEquals(NUM_KEYS, map.size());
+    for (long key : keys) {
+      assertTrue(map.containsKey(key));
+      assertEquals(~key, map.get(key, 0));
+    }
+    assertFalse(map.containsKey(-2));
+    assertEquals(7, map.get(-2, 7));
+    map.close();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015-2016 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.titan;
+
+import junit.framework.TestCase;
+import net.ellitron.ldbcsnbimpls.interactive.titan.TitanGraphLoader.SplitCheckpoint;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that a load resumed from the checkpoint of a partly loaded range
+ * continues with the first line not yet committed, and replays only the
+ * batch that was being committed.
+ */
+public class SplitCheckpointTest extends TestCase {
+
+  private static final String FILE_NAME = "person_0_0.csv";
+
+  private Path dir;
+
+  private Path checkpointDir;
+
+  private Path file;
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("splitcheckpoint");
+    checkpointDir = Files.createDirectory(dir.resolve("checkpoints"));
+    file = dir.resolve(FILE_NAME);
+    Files.write(file, "1|Alice\n2|Bob\r\n3|Carol\n4|Dave\n5|Eve"
+        .getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    for (Path d : new Path[] {checkpointDir, dir}) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(d)) {
+        for (Path f : files) {
+          Files.delete(f);
+        }
+      }
+    }
+    Files.delete(dir);
+  }
+
+  public void testResumeFromPartlyCommittedBatch() throws IOException {
+    long size = Files.size(file);
+    SplitCheckpoint checkpoint =
+        SplitCheckpoint.create(checkpointDir, FILE_NAME, 0, size);
+
+    // First batch committed in one transaction, second batch only in part.
+    List<String> lines = new ArrayList<>();
+    try (CsvLineReader reader = new CsvLineReader(file, 0, size)) {
+      checkpoint.batchRead(readBatch(reader, 2, lines));
+      assertFalse(checkpoint.replaying());
+      checkpoint.linesCommitted(2);
+      checkpoint.batchRead(readBatch(reader, 2, lines));
+      checkpoint.linesCommitted(1);
+    }
+    assertEquals(Arrays.asList("1|Alice", "2|Bob", "3|Carol", "4|Dave"),
+        lines);
+
+    List<SplitCheckpoint> resumed =
+        SplitCheckpoint.readAll(checkpointDir, FILE_NAME);
+    assertEquals(1, resumed.size());
+    checkpoint = resumed.get(0);
+    assertEquals(0, checkpoint.start);
+    assertEquals(size, checkpoint.end);
+    assertEquals(3, checkpoint.lineCount);
+    assertFalse(checkpoint.done);
+
+    lines.clear();
+    try (CsvLineReader reader =
+             new CsvLineReader(file, checkpoint.position, checkpoint.end)) {
+      checkpoint.batchRead(readBatch(reader, 2, lines));
+      assertTrue(checkpoint.replaying());
+      checkpoint.linesCommitted(2);
+      assertNull(reader.readLine());
+    }
+    assertEquals(Arrays.asList("4|Dave", "5|Eve"), lines);
+
+    // Only the first batch after resuming is a replay.
+    checkpoint.batchRead(new long[0]);
+    assertFalse(checkpoint.replaying());
+  }
+
+  public void testFinishedRangeIsNotReplayed() throws IOException {
+    long size = Files.size(file);
+    SplitCheckpoint checkpoint =
+        SplitCheckpoint.create(checkpointDir, FILE_NAME, 0, size);
+    try (CsvLineReader reader = new CsvLineReader(file, 0, size)) {
+      checkpoint.batchRead(readBatch(reader, 5, new ArrayList<>()));
+      checkpoint.linesCommitted(5);
+    }
+    checkpoint.finished();
+
+    checkpoint = SplitCheckpoint.readAll(checkpointDir, FILE_NAME).get(0);
+    assertTrue(checkpoint.done);
+    assertEquals(size, checkpoint.position);
+    assertEquals(5, checkpoint.lineCount);
+    checkpoint.batchRead(new long[0]);
+    assertFalse(checkpoint.replaying());
+  }
+
+  public void testReadAllOrdersRangesOfOneFile() throws IOException {
+    SplitCheckpoint.create(checkpointDir, FILE_NAME, 20, 40);
+    SplitCheckpoint.create(checkpointDir, FILE_NAME, 0, 20);
+    // Its checkpoint file names match those of FILE_NAME's ranges.
+    SplitCheckpoint.create(checkpointDir, FILE_NAME + ".bak", 0, 20);
+
+    List<SplitCheckpoint> checkpoints =
+        SplitCheckpoint.readAll(checkpointDir, FILE_NAME);
+    assertEquals(2, checkpoints.size());
+    assertEquals(0, checkpoints.get(0).start);
+    assertEquals(20, checkpoints.get(0).end);
+    assertEquals(20, checkpoints.get(1).start);
+    assertEquals(40, checkpoints.get(1).end);
+
+    assertEquals(0,
+        SplitCheckpoint.readAll(checkpointDir, "forum_0_0.csv").size());
+  }
+
+  /*
+   * Reads up to count lines into lines, returning their end offsets as the
+   * loader does.
+   */
+  private static long[] readBatch(CsvLineReader reader, int count,
+                                  List<String> lines) throws IOException {
+    long[] lineEnds = new long[count];
+    int n = 0;
+    String line;
+    while (n < count && (line = reader.readLine()) != null) {
+      lines.add(line);
+      lineEnds[n++] = reader.position();
+    }
+    return Arrays.copyOf(lineEnds, n);
+  }
+}
@@ -20,11 +20,20 @@ import com.ldbc.driver.*;
 import com.ldbc.driver.runtime.ConcurrentErrorReporter;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.*;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate1AddPerson.Organization;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
 import org.docopt.Docopt;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -32,6 +41,16 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A utility for running individual queries for testing purposes. It is
@@ -85,6 +104,7 @@ public class QueryTester {
           + "  QueryTester [options] update7 <nth>\n"
           + "  QueryTester [options] update8 <nth>\n"
           + "  QueryTester [options] updates <count>\n"
+          + "  QueryTester [options] replay <paramDir> <count>\n"
           + "  QueryTester [options] --script=<script>\n"
           + "  QueryTester (-h | --help)\n"
           + "  QueryTester --version\n"
@@ -105,6 +125,21 @@ public class QueryTester {
           + "                       warming up to stabilization. Parameter value\n"
           + "                       N is the number of times to measure the min\n"
           + "                       latency before we claim stabilization.\n"
+          + "  --stableWarmUp=<cv>  Warm up query until the latencies of the\n"
+          + "                       last --warmUpWindow executions have a\n"
+          + "                       coefficient of variation of at most cv, and\n"
+          + "                       the means of the older and newer half of the\n"
+          + "                       window differ by at most cv relative to the\n"
+          + "                       window mean, e.g. 0.05. Performed after\n"
+          + "                       --warmUp and instead of --smartWarmUp.\n"
+          + "  --warmUpWindow=<n>   Number of executions --stableWarmUp judges\n"
+          + "                       stability on, and over which both warm-ups\n"
+          + "                       report JIT activity [default: 100].\n"
+          + "  --maxWarmUp=<s>      Give up on --stableWarmUp or --smartWarmUp\n"
+          + "                       after this many seconds [default: 600].\n"
+          + "  --maxWarmUpIterations=<n>  Give up on --stableWarmUp or\n"
+          + "                       --smartWarmUp after this many executions\n"
+          + "                       [default: 1000000].\n"
           + "  --input=<input>      Directory of updateStream files to use as\n"
           + "                       input for update queries (the nth update of\n"
           + "                       its kind will be selected from the stream to\n"
@@ -112,6 +147,28 @@ public class QueryTester {
           + "  --timeUnits=<unit>   Unit of time in which to report timings\n"
           + "                       (SECONDS, MILLISECONDS, MICROSECONDS,\n"
           + "                       NANOSECONDS) [default: MILLISECONDS].\n"
+          + "  --interval=<us>      Start repeats of the query at this fixed\n"
+          + "                       interval in microseconds across all\n"
+          + "                       threads instead of back to back (open\n"
+          + "                       loop), and measure latencies from each\n"
+          + "                       repeat's scheduled start, so that delays\n"
+          + "                       from overrunning repeats are not omitted\n"
+          + "                       (0 disables) [default: 0].\n"
+          + "  --threads=<n>        Execute the repeats of the query on this many\n"
+          + "                       threads, each issuing queries back to back\n"
+          + "                       (closed loop) [default: 1].\n"
+          + "  --rate=<ops/s>       Same as --interval, with the schedule given\n"
+          + "                       as a rate. At most one of the two may be\n"
+          + "                       set (0 disables) [default: 0].\n"
+          + "  --timeCompression=<ratio>  For replay, the factor by which to\n"
+          + "                       scale the time between operations in the\n"
+          + "                       update streams (0 replays as fast as\n"
+          + "                       possible, and measures latencies from when\n"
+          + "                       each operation starts) [default: 1].\n"
+          + "  --histogramLog=<file>  Append the latency histogram of each\n"
+          + "                       command to this HdrHistogram log file, which\n"
+          + "                       can be merged and analyzed with the\n"
+          + "                       HdrHistogram log tools.\n"
           + "  --script=<script>    File to use as command script. Commands will\n"
           + "                       be executed from this script as if the args\n"
           + "                       were supplied at the command line, one per\n"
@@ -398,7 +455,8 @@ public class QueryTester {
   /*
    * A mapping between the name of the operation parameter and the Java
    * datatype that it represents. This informs the parser how to interpret and
-   * deserialize the value in this field in the file.
+   * deserialize the value in this field in the file. Covers the fields of both
+   * update stream files and substitution parameter files.
    */
   private static final Map<String, String> paramDataTypes;
 
@@ -411,7 +469,11 @@ public class QueryTester {
     dataTypeMap.put("commentId", "Long");
     dataTypeMap.put("content", "String");
     dataTypeMap.put("countryId", "Long");
+    dataTypeMap.put("countryName", "String");
+    dataTypeMap.put("countryXName", "String");
+    dataTypeMap.put("countryYName", "String");
     dataTypeMap.put("creationDate", "Date");
+    dataTypeMap.put("durationDays", "Integer");
     dataTypeMap.put("emails", "List<String>");
     dataTypeMap.put("firstName", "String");
     dataTypeMap.put("forumId", "Long");
@@ -423,7 +485,10 @@ public class QueryTester {
     dataTypeMap.put("lastName", "String");
     dataTypeMap.put("length", "Integer");
     dataTypeMap.put("locationIP", "String");
+    dataTypeMap.put("maxDate", "Date");
+    dataTypeMap.put("minDate", "Date");
     dataTypeMap.put("moderatorPersonId", "Long");
+    dataTypeMap.put("month", "Integer");
     dataTypeMap.put("person1Id", "Long");
     dataTypeMap.put("person2Id", "Long");
     dataTypeMap.put("personId", "Long");
@@ -431,13 +496,74 @@ public class QueryTester {
     dataTypeMap.put("replyToCommentId", "Long");
     dataTypeMap.put("replyToPostId", "Long");
     dataTypeMap.put("speaks", "List<String>");
+    dataTypeMap.put("startDate", "Date");
     dataTypeMap.put("studyAt", "List<Organization>");
+    dataTypeMap.put("tagClassName", "String");
     dataTypeMap.put("tagIds", "List<Long>");
+    dataTypeMap.put("tagName", "String");
     dataTypeMap.put("workAt", "List<Organization>");
+    dataTypeMap.put("workFromYear", "Integer");
 
     paramDataTypes = Collections.unmodifiableMap(dataTypeMap);
   }
 
+  /*
+   * For each complex read, the number of update operations between two of
+   * its executions in a replay, per the LDBC SNB interactive workload
+   * definition at scale factor 1. Overridden by replay.<handler key>.freq
+   * entries in the configuration file, e.g. replay.LdbcQuery1Handler.freq.
+   */
+  private static final Map<ComplexAndShortOp, Integer> REPLAY_FREQUENCIES;
+
+  /*
+   * The limit each complex read is replayed with, per the LDBC SNB
+   * interactive workload definition.
+   */
+  private static final Map<ComplexAndShortOp, Integer> REPLAY_LIMITS;
+
+  /*
+   * Fraction of the time spanned by a warm-up window that the JIT compiler
+   * may spend compiling before warm-up is reported as still compiling. Below
+   * it, compilation is background noise, such as the odd deoptimization.
+   */
+  private static final double JIT_ACTIVE_FRACTION = 0.01;
+
+  static {
+    Map<ComplexAndShortOp, Integer> freqMap =
+        new EnumMap<>(ComplexAndShortOp.class);
+    freqMap.put(ComplexAndShortOp.QUERY1, 26);
+    freqMap.put(ComplexAndShortOp.QUERY2, 37);
+    freqMap.put(ComplexAndShortOp.QUERY3, 69);
+    freqMap.put(ComplexAndShortOp.QUERY4, 36);
+    freqMap.put(ComplexAndShortOp.QUERY5, 57);
+    freqMap.put(ComplexAndShortOp.QUERY6, 129);
+    freqMap.put(ComplexAndShortOp.QUERY7, 87);
+    freqMap.put(ComplexAndShortOp.QUERY8, 45);
+    freqMap.put(ComplexAndShortOp.QUERY9, 157);
+    freqMap.put(ComplexAndShortOp.QUERY10, 30);
+    freqMap.put(ComplexAndShortOp.QUERY11, 16);
+    freqMap.put(ComplexAndShortOp.QUERY12, 44);
+    freqMap.put(ComplexAndShortOp.QUERY13, 19);
+    freqMap.put(ComplexAndShortOp.QUERY14, 49);
+    REPLAY_FREQUENCIES = Collections.unmodifiableMap(freqMap);
+
+    Map<ComplexAndShortOp, Integer> limitMap =
+        new EnumMap<>(ComplexAndShortOp.class);
+    limitMap.put(ComplexAndShortOp.QUERY1, 20);
+    limitMap.put(ComplexAndShortOp.QUERY2, 20);
+    limitMap.put(ComplexAndShortOp.QUERY3, 20);
+    limitMap.put(ComplexAndShortOp.QUERY4, 10);
+    limitMap.put(ComplexAndShortOp.QUERY5, 20);
+    limitMap.put(ComplexAndShortOp.QUERY6, 10);
+    limitMap.put(ComplexAndShortOp.QUERY7, 20);
+    limitMap.put(ComplexAndShortOp.QUERY8, 20);
+    limitMap.put(ComplexAndShortOp.QUERY9, 20);
+    limitMap.put(ComplexAndShortOp.QUERY10, 10);
+    limitMap.put(ComplexAndShortOp.QUERY11, 10);
+    limitMap.put(ComplexAndShortOp.QUERY12, 20);
+    REPLAY_LIMITS = Collections.unmodifiableMap(limitMap);
+  }
+
   /**
    * Parses a line of an LDBC SNB interactive workload update stream file into
    * an instance of the operation that represents it.
@@ -475,52 +601,107 @@ public class QueryTester {
         cmdParamStr = fieldValue;
       else
         cmdParamStr += " " + fieldValue;
-      switch (paramDataTypes.get(update.params[i])) {
-        case "Date":
-          argList.add(new Date(Long.decode(fieldValue)));
-          break;
-        case "Integer":
-          argList.add(Integer.decode(fieldValue));
-          break;
-        case "List<Long>":
-          List<Long> numList = new ArrayList<>();
-          if (fieldValue.length() > 0) {
-            for (String num : fieldValue.split(";")) {
-              numList.add(Long.decode(num));
-            }
+      argList.add(parseValue(paramDataTypes.get(update.params[i]),
+          fieldValue, update.name()));
+    }
+
+    return (Operation) update.opClass.getDeclaredConstructors()[0]
+        .newInstance(argList.toArray());
+  }
+
+  /*
+   * Deserializes a field of an update stream or substitution parameter file
+   * holding a value of the given datatype, as named in paramDataTypes.
+   */
+  private static Object parseValue(String dataType, String value,
+                                   String opName) {
+    switch (dataType) {
+      case "Date":
+        return new Date(Long.decode(value));
+      case "Integer":
+        return Integer.decode(value);
+      case "List<Long>":
+        List<Long> numList = new ArrayList<>();
+        if (value.length() > 0) {
+          for (String num : value.split(";")) {
+            numList.add(Long.decode(num));
           }
-          argList.add(numList);
-          break;
-        case "List<Organization>":
-          List<Organization> orgList = new ArrayList<>();
-          if (fieldValue.length() > 0) {
-            for (String org : fieldValue.split(";")) {
-              String[] placeAndYear = org.split(",");
-              long orgId = Long.decode(placeAndYear[0]);
-              int year = Integer.decode(placeAndYear[1]);
-              orgList.add(new Organization(orgId, year));
-            }
+        }
+        return numList;
+      case "List<Organization>":
+        List<Organization> orgList = new ArrayList<>();
+        if (value.length() > 0) {
+          for (String org : value.split(";")) {
+            String[] placeAndYear = org.split(",");
+            long orgId = Long.decode(placeAndYear[0]);
+            int year = Integer.decode(placeAndYear[1]);
+            orgList.add(new Organization(orgId, year));
           }
-          argList.add(orgList);
-          break;
-        case "List<String>":
-          argList.add(Arrays.asList(fieldValue.split(";")));
-          break;
-        case "Long":
-          argList.add(Long.decode(fieldValue));
-          break;
-        case "String":
-          argList.add(fieldValue);
-          break;
-        default:
-          throw new RuntimeException(String.format("Don't know how to parse "
-                  + "field of type %s for update type %s",
-              paramDataTypes.get(update.params[i]), update.name()));
+        }
+        return orgList;
+      case "List<String>":
+        return Arrays.asList(value.split(";"));
+      case "Long":
+        return Long.decode(value);
+      case "String":
+        return value;
+      default:
+        throw new RuntimeException(String.format("Don't know how to parse "
+                + "field of type %s for operation type %s",
+            dataType, opName));
+    }
+  }
+
+  /**
+   * Parses an LDBC SNB interactive workload substitution parameter file into
+   * one operation per line. The first line of the file names the parameter in
+   * each column; parameters that are not in the file, such as limits, take
+   * the value in REPLAY_LIMITS.
+   *
+   * @param csop Query the file holds parameters for.
+   * @param path Path of the substitution parameter file.
+   * @return Operations in the order of the lines in the file.
+   */
+  private static List<Operation> parseSubstitutionParameters(
+      ComplexAndShortOp csop, Path path) throws Exception {
+    BufferedReader inFile =
+        Files.newBufferedReader(path, StandardCharsets.UTF_8);
+
+    Map<String, Integer> columns = new HashMap<>();
+    String[] header = inFile.readLine().split("\\|");
+    for (int i = 0; i < header.length; i++) {
+      columns.put(header[i], i);
+    }
+
+    List<Operation> ops = new ArrayList<>();
+    String line;
+    while ((line = inFile.readLine()) != null) {
+      String[] colVals = line.split("\\|", -1);
+      List<Object> argList = new ArrayList<>();
+      for (String paramVal : csop.opCtorParamVals) {
+        String param = paramVal.substring(1, paramVal.length() - 1);
+        if (param.equals("limit")) {
+          argList.add(REPLAY_LIMITS.get(csop));
+          continue;
+        }
+
+        Integer column = columns.get(param);
+        if (column == null) {
+          throw new RuntimeException(String.format("ERROR: File %s has no "
+              + "column for parameter %s of %s.", path.toAbsolutePath(),
+              param, csop.command));
+        }
+        argList.add(parseValue(paramDataTypes.get(param), colVals[column],
+            csop.name()));
       }
+
+      ops.add((Operation) csop.opClass.getDeclaredConstructors()[0]
+          .newInstance(argList.toArray()));
     }
 
-    return (Operation) update.opClass.getDeclaredConstructors()[0]
-        .newInstance(argList.toArray());
+    inFile.close();
+
+    return ops;
   }
 
   public static <R, T extends Operation<R>, S extends DbConnectionState> void
@@ -538,16 +719,69 @@ public class QueryTester {
         opHandler.executeOperation(op, connectionState, resultReporter);
     }
 
-    if (cmdstring.contains("--smartWarmUp")) {
+    long maxWarmUpNanos =
+        Long.decode((String) opts.get("--maxWarmUp")) * 1000000000L;
+    long maxWarmUpIterations =
+        Long.decode((String) opts.get("--maxWarmUpIterations"));
+
+    if (opts.get("--stableWarmUp") != null) {
+      System.out.println(String.format("stableWarmUp=[%s]", cmdstring));
+      double maxVariation =
+          Double.parseDouble((String) opts.get("--stableWarmUp"));
+      WarmUpWindow window = new WarmUpWindow(
+          Integer.decode((String) opts.get("--warmUpWindow")));
+      long iterations = 0;
+      boolean stable = false;
+      long warmUpStartNanos = System.nanoTime();
+      long lastReportNanos = warmUpStartNanos;
+      while (iterations < maxWarmUpIterations
+          && System.nanoTime() - warmUpStartNanos < maxWarmUpNanos) {
+        long startTime = System.nanoTime();
+        opHandler.executeOperation(op, connectionState, resultReporter);
+        long endTime = System.nanoTime();
+        window.add(endTime - startTime, compilationTimeMillis());
+        iterations++;
+
+        if (window.isFull() && window.variation() <= maxVariation
+            && Math.abs(window.drift()) <= maxVariation) {
+          stable = true;
+          break;
+        }
+
+        if (endTime - lastReportNanos > 5000000000L && window.isFull()) {
+          System.out.println(String.format("stableWarmUp: Iterations: %d, "
+                  + "Window Mean: %d us, CV: %.3f, Drift: %.3f", iterations,
+              (long) window.mean() / 1000, window.variation(),
+              window.drift()));
+          lastReportNanos = endTime;
+        }
+      }
+
+      System.out.println(String.format("stableWarmUp(%s) %s after %d "
+              + "iterations in %.1f s, Window Mean: %d us, CV: %.3f, "
+              + "Drift: %.3f, %s", maxVariation,
+          stable ? "Stable" : "Gave up", iterations,
+          (System.nanoTime() - warmUpStartNanos) / 1e9,
+          (long) window.mean() / 1000, window.variation(), window.drift(),
+          describeCompilation(window)));
+    } else if (cmdstring.contains("--smartWarmUp")) {
       System.out.println(String.format("smartWarmUp=[%s]", cmdstring));
       int smartCount = Integer.decode((String) opts.get("--smartWarmUp"));
       long globalMin = Long.MAX_VALUE;
       long globalMinCount = 0;
+      WarmUpWindow window = new WarmUpWindow(
+          Integer.decode((String) opts.get("--warmUpWindow")));
+      long iterations = 0;
+      long warmUpStartNanos = System.nanoTime();
       long smartWarmUpStartTime = System.currentTimeMillis();
-      while (true) {
+      while (iterations < maxWarmUpIterations
+          && System.nanoTime() - warmUpStartNanos < maxWarmUpNanos) {
         long startTime = System.nanoTime();
         opHandler.executeOperation(op, connectionState, resultReporter);
-        long execTime = (System.nanoTime() - startTime) / 1000;
+        long latency = System.nanoTime() - startTime;
+        long execTime = latency / 1000;
+        window.add(latency, compilationTimeMillis());
+        iterations++;
 
         if (execTime < globalMin) {
           globalMin = execTime;
@@ -565,22 +799,53 @@ public class QueryTester {
         }
       }
 
-      System.out.println(String.format("smartWarmUp(%d) Min: %d us", smartCount, globalMin));
+      System.out.println(String.format("smartWarmUp(%d) Min: %d us, %s "
+              + "after %d iterations in %.1f s, %s", smartCount, globalMin,
+          (globalMinCount == smartCount) ? "Stable" : "Gave up", iterations,
+          (System.nanoTime() - warmUpStartNanos) / 1e9,
+          describeCompilation(window)));
     }
 
     if (repeatCount > 0) {
-      Long[] latencyNanos = new Long[repeatCount];
-      Long[] startTimeMillis = new Long[repeatCount];
-      Long[] endTimeMillis = new Long[repeatCount];
-
-      long startNanos;
-      for (int i = 0; i < repeatCount; i++) {
-        startTimeMillis[i] = System.currentTimeMillis();
-        startNanos = System.nanoTime();
-        opHandler.executeOperation(op, connectionState, resultReporter);
-        latencyNanos[i] = System.nanoTime() - startNanos;
-        endTimeMillis[i] = System.currentTimeMillis();
+      /*
+       * Latencies are recorded in nanoseconds into a histogram with three
+       * significant digits, whose footprint depends only on the range of the
+       * values recorded, not on how many there are.
+       */
+      Histogram histogram = new Histogram(3);
+      long intervalNanos = Long.decode((String) opts.get("--interval")) * 1000;
+      int threads = Integer.decode((String) opts.get("--threads"));
+      double rate = Double.parseDouble((String) opts.get("--rate"));
+
+      /*
+       * --interval and --rate are two ways of specifying the same open loop
+       * schedule.
+       */
+      if (intervalNanos > 0 && rate > 0) {
+        throw new RuntimeException("ERROR: --interval and --rate both set "
+            + "the schedule of repeats, specify at most one.");
+      }
+      if (rate > 0) {
+        intervalNanos = (long) (1000000000 / rate);
+      }
+
+      long startTimeMillis = System.currentTimeMillis();
+      if (threads > 1 || intervalNanos > 0) {
+        histogram = runLoad(opHandler, op, connectionState, repeatCount,
+            threads, intervalNanos);
+      } else {
+        for (int i = 0; i < repeatCount; i++) {
+          long startNanos = System.nanoTime();
+          opHandler.executeOperation(op, connectionState, resultReporter);
+          histogram.recordValue(System.nanoTime() - startNanos);
+        }
       }
+      long endTimeMillis = System.currentTimeMillis();
+      double throughput =
+          repeatCount * 1000.0 / Math.max(endTimeMillis - startTimeMillis, 1);
+
+      histogram.setStartTimeStamp(startTimeMillis);
+      histogram.setEndTimeStamp(endTimeMillis);
 
       long nanosPerTimeUnit;
       switch (timeUnits) {
@@ -600,48 +865,17 @@ public class QueryTester {
           throw new RuntimeException("Unrecognized time unit: " + timeUnits);
       }
 
-      try {
-        BufferedWriter latencyFile =
-            Files.newBufferedWriter(Paths.get("latency.csv"), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-
-        for (int i = 0; i < latencyNanos.length; i++) {
-          latencyFile.append(String.format("%s,%d,%d\n",
-              cmdStr,
-              //cmdParamStr,
-              i + 1,
-              latencyNanos[i] / nanosPerTimeUnit));
-        }
-
-        latencyFile.close();
-      } catch (Exception e) {
-        throw new RuntimeException(e);
-      }
-
-      Arrays.sort(latencyNanos);
-
-      long sum = 0;
-      long min = Long.MAX_VALUE;
-      long max = 0;
-      for (int i = 0; i < latencyNanos.length; i++) {
-        sum += latencyNanos[i];
-
-        if (latencyNanos[i] < min) {
-          min = latencyNanos[i];
-        }
-
-        if (latencyNanos[i] > max) {
-          max = latencyNanos[i];
-        }
-      }
-
-      long mean = sum / repeatCount;
-
-      int p25 = (int) (0.25 * (float) repeatCount);
-      int p50 = (int) (0.50 * (float) repeatCount);
-      int p75 = (int) (0.75 * (float) repeatCount);
-      int p90 = (int) (0.90 * (float) repeatCount);
-      int p95 = (int) (0.95 * (float) repeatCount);
-      int p99 = (int) (0.99 * (float) repeatCount);
+      long min = histogram.getMinValue();
+      long max = histogram.getMaxValue();
+      long mean = (long) histogram.getMean();
+      long p25 = histogram.getValueAtPercentile(25.0);
+      long p50 = histogram.getValueAtPercentile(50.0);
+      long p75 = histogram.getValueAtPercentile(75.0);
+      long p90 = histogram.getValueAtPercentile(90.0);
+      long p95 = histogram.getValueAtPercentile(95.0);
+      long p99 = histogram.getValueAtPercentile(99.0);
+      long p999 = histogram.getValueAtPercentile(99.9);
+      long p9999 = histogram.getValueAtPercentile(99.99);
 
       System.out.println("Query:");
       System.out.println(op.toString());
@@ -650,6 +884,9 @@ public class QueryTester {
           "Query Stats:\n"
               + "  Units:            %s\n"
               + "  Count:            %d\n"
+              + "  Recorded:         %d\n"
+              + "  Threads:          %d\n"
+              + "  Throughput:       %.1f ops/s\n"
               + "  Min:              %d\n"
               + "  Max:              %d\n"
               + "  Mean:             %d\n"
@@ -658,45 +895,296 @@ public class QueryTester {
               + "  75th Percentile:  %d\n"
               + "  90th Percentile:  %d\n"
               + "  95th Percentile:  %d\n"
-              + "  99th Percentile:  %d\n",
+              + "  99th Percentile:  %d\n"
+              + "  99.9th Percentile:  %d\n"
+              + "  99.99th Percentile: %d\n",
           timeUnits,
           repeatCount,
+          histogram.getTotalCount(),
+          threads,
+          throughput,
           min / nanosPerTimeUnit,
           max / nanosPerTimeUnit,
           mean / nanosPerTimeUnit,
-          latencyNanos[p25] / nanosPerTimeUnit,
-          latencyNanos[p50] / nanosPerTimeUnit,
-          latencyNanos[p75] / nanosPerTimeUnit,
-          latencyNanos[p90] / nanosPerTimeUnit,
-          latencyNanos[p95] / nanosPerTimeUnit,
-          latencyNanos[p99] / nanosPerTimeUnit));
-
+          p25 / nanosPerTimeUnit,
+          p50 / nanosPerTimeUnit,
+          p75 / nanosPerTimeUnit,
+          p90 / nanosPerTimeUnit,
+          p95 / nanosPerTimeUnit,
+          p99 / nanosPerTimeUnit,
+          p999 / nanosPerTimeUnit,
+          p9999 / nanosPerTimeUnit));
+
+      // The row keeps its original 13 columns, as rows are appended to
+      // files of earlier runs. Higher percentiles go to the histogram log.
       try {
-        BufferedWriter statsFile =
-            Files.newBufferedWriter(Paths.get("latency_stats.csv"), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-
-        statsFile.append(String.format("%d,%d,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d\n",
-            startTimeMillis[0],
-            endTimeMillis[repeatCount - 1],
+        statsFile().append(String.format(
+            "%d,%d,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d\n",
+            startTimeMillis,
+            endTimeMillis,
             cmdStr,
             cmdParamStr,
             repeatCount,
             min / nanosPerTimeUnit,
             max / nanosPerTimeUnit,
-            latencyNanos[p25] / nanosPerTimeUnit,
-            latencyNanos[p50] / nanosPerTimeUnit,
-            latencyNanos[p75] / nanosPerTimeUnit,
-            latencyNanos[p90] / nanosPerTimeUnit,
-            latencyNanos[p95] / nanosPerTimeUnit,
-            latencyNanos[p99] / nanosPerTimeUnit));
-
-        statsFile.close();
-      } catch (Exception e) {
+            p25 / nanosPerTimeUnit,
+            p50 / nanosPerTimeUnit,
+            p75 / nanosPerTimeUnit,
+            p90 / nanosPerTimeUnit,
+            p95 / nanosPerTimeUnit,
+            p99 / nanosPerTimeUnit));
+        statsFile().flush();
+      } catch (IOException e) {
         throw new RuntimeException(e);
       }
+
+      if (histogramLog != null) {
+        histogram.setTag(cmdStr);
+        histogramLog.outputIntervalHistogram(histogram);
+      }
+    }
+  }
+
+  /*
+   * Returns the total time the JIT compiler has spent compiling since the JVM
+   * started, in milliseconds, or -1 if the JVM does not track it.
+   */
+  private static long compilationTimeMillis() {
+    CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+    if (compilation == null
+        || !compilation.isCompilationTimeMonitoringSupported()) {
+      return -1;
+    }
+    return compilation.getTotalCompilationTime();
+  }
+
+  /*
+   * Describes JIT activity over the last executions of a warm-up, those in
+   * its window. Ongoing compilation means the latencies measured next may
+   * still shift.
+   */
+  private static String describeCompilation(WarmUpWindow window) {
+    long compileMillis = window.compilationTimeMillis();
+    long elapsedMillis = window.elapsedNanos() / 1000000;
+    if (compileMillis < 0) {
+      return "JIT: not monitored";
+    } else if (compileMillis > JIT_ACTIVE_FRACTION * elapsedMillis) {
+      return String.format("JIT: still compiling (%d ms in last %d ms)",
+          compileMillis, elapsedMillis);
+    } else {
+      return "JIT: idle";
     }
   }
 
+  /**
+   * The latencies of the most recent executions of a query during warm-up.
+   * Warm-up is considered done once the window is both tight, having a low
+   * coefficient of variation, and flat, with no shift in mean between its
+   * older and newer half. The latter catches a latency series that is still
+   * converging, or that has just jumped to a new level, in steps too small
+   * for the coefficient of variation alone to notice.
+   */
+  private static class WarmUpWindow {
+
+    private final long[] latencies;
+
+    /*
+     * JIT compilation time at the end of each execution in the window.
+     */
+    private final long[] compileTimes;
+
+    private long count = 0;
+
+    WarmUpWindow(int size) {
+      if (size < 2) {
+        throw new RuntimeException(String.format("ERROR: Warm-up window "
+            + "must hold at least 2 executions, but is %d.", size));
+      }
+      this.latencies = new long[size];
+      this.compileTimes = new long[size];
+    }
+
+    void add(long latency, long compileTime) {
+      int slot = (int) (count % latencies.length);
+      latencies[slot] = latency;
+      compileTimes[slot] = compileTime;
+      count++;
+    }
+
+    boolean isFull() {
+      return count >= latencies.length;
+    }
+
+    double mean() {
+      int n = size();
+      if (n == 0) {
+        return 0;
+      }
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += latencies[i];
+      }
+      return sum / n;
+    }
+
+    /*
+     * Standard deviation of the latencies relative to their mean.
+     */
+    double variation() {
+      int n = size();
+      double mean = mean();
+      if (n < 2 || mean == 0) {
+        return 0;
+      }
+      double sumSq = 0;
+      for (int i = 0; i < n; i++) {
+        sumSq += (latencies[i] - mean) * (latencies[i] - mean);
+      }
+      return Math.sqrt(sumSq / (n - 1)) / mean;
+    }
+
+    /*
+     * Difference between the mean latency of the newer and the older half of
+     * the window, relative to the mean of the whole window.
+     */
+    double drift() {
+      int n = size();
+      double mean = mean();
+      if (n < 2 || mean == 0) {
+        return 0;
+      }
+      double olderSum = 0;
+      double newerSum = 0;
+      int half = n / 2;
+      for (int age = 0; age < n; age++) {
+        long latency = latencies[slotOf(age)];
+        if (age < half) {
+          olderSum += latency;
+        } else {
+          newerSum += latency;
+        }
+      }
+      return (newerSum / (n - half) - olderSum / half) / mean;
+    }
+
+    /*
+     * JIT compilation time spent over the span of the window, or -1 if it is
+     * not monitored.
+     */
+    long compilationTimeMillis() {
+      int n = size();
+      if (n == 0 || compileTimes[slotOf(0)] < 0) {
+        return -1;
+      }
+      return compileTimes[slotOf(n - 1)] - compileTimes[slotOf(0)];
+    }
+
+    /*
+     * Total latency of the executions in the window, which for back-to-back
+     * executions is the time the window spans.
+     */
+    long elapsedNanos() {
+      int n = size();
+      long sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += latencies[i];
+      }
+      return sum;
+    }
+
+    private int size() {
+      return (int) Math.min(count, latencies.length);
+    }
+
+    /*
+     * Returns the slot of the execution with the given age, 0 being the
+     * oldest in the window.
+     */
+    private int slotOf(int age) {
+      if (count < latencies.length) {
+        return age;
+      }
+      return (int) ((count + age) % latencies.length);
+    }
+  }
+
+  /*
+   * Executes the operation count times across the given number of threads,
+   * each with its own instance of the handler, and returns the latencies.
+   *
+   * Without an interval each thread issues executions back to back. With an
+   * interval the ith execution is scheduled to start i intervals in, and its
+   * latency is measured from that scheduled start, so time spent waiting for
+   * a free thread, or behind an execution that overran its interval, counts
+   * against it.
+   */
+  private static <R, T extends Operation<R>, S extends DbConnectionState>
+  Histogram runLoad(OperationHandler<T, S> opHandler, T op, S connectionState,
+                    int count, int threads, long intervalNanos) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    AtomicInteger next = new AtomicInteger();
+    long loadStartNanos = System.nanoTime();
+
+    List<Future<Histogram>> workers = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      OperationHandler<T, S> handler;
+      try {
+        handler = (OperationHandler<T, S>) opHandler.getClass()
+            .getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new RuntimeException(e);
+      }
+
+      workers.add(executor.submit(() -> {
+        Histogram histogram = new Histogram(3);
+        ResultReporter resultReporter =
+            new ResultReporter.SimpleResultReporter(
+                new ConcurrentErrorReporter());
+        int i;
+        while ((i = next.getAndIncrement()) < count) {
+          long startNanos = System.nanoTime();
+          if (intervalNanos > 0) {
+            startNanos = loadStartNanos + i * intervalNanos;
+            long waitNanos;
+            while ((waitNanos = startNanos - System.nanoTime()) > 0) {
+              LockSupport.parkNanos(waitNanos);
+            }
+          }
+
+          handler.executeOperation(op, connectionState, resultReporter);
+          histogram.recordValue(System.nanoTime() - startNanos);
+        }
+        return histogram;
+      }));
+    }
+
+    Histogram histogram = new Histogram(3);
+    try {
+      for (Future<Histogram> worker : workers) {
+        histogram.add(worker.get());
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+    return histogram;
+  }
+
+  /*
+   * Returns the writer for latency_stats.csv, opening it on first use. It is
+   * kept open until the program exits, and flushed after each row so that a
+   * failing later command does not lose the rows before it.
+   */
+  private static BufferedWriter statsFile() throws IOException {
+    if (statsFile == null) {
+      statsFile = Files.newBufferedWriter(Paths.get("latency_stats.csv"),
+          StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    }
+    return statsFile;
+  }
+
   public static OperationHandler<? extends Operation, DbConnectionState>
   getOpHandler(String className) throws Exception {
     return (OperationHandler<? extends Operation, DbConnectionState>) Class
@@ -706,6 +1194,12 @@ public class QueryTester {
   static String cmdStr = "";
   static String cmdParamStr = "";
 
+  /*
+   * Output files shared by all commands of a run, or null until used.
+   */
+  static BufferedWriter statsFile = null;
+  static HistogramLogWriter histogramLog = null;
+
   public static void main(String[] args) throws Exception {
     if (args.length == 1)
       args = args[0].split("\\s+");
@@ -715,6 +1209,24 @@ public class QueryTester {
 
     System.out.println(opts);
 
+    if (opts.get("--histogramLog") != null) {
+      // Append, so that the histograms of several runs can be collected in
+      // one log. Only a new log gets the format version and legend. Each
+      // line is flushed, so that a failing later command does not lose the
+      // histograms before it.
+      File logFile = new File((String) opts.get("--histogramLog"));
+      boolean newLog = logFile.length() == 0;
+      histogramLog = new HistogramLogWriter(
+          new PrintStream(new FileOutputStream(logFile, true), true));
+      if (newLog) {
+        histogramLog.outputLogFormatVersion();
+      }
+      histogramLog.outputStartTime(System.currentTimeMillis());
+      if (newLog) {
+        histogramLog.outputLegend();
+      }
+    }
+
     // Load properties from the configuration file.
     String configFilename = (String) opts.get("--config");
     Properties prop = new Properties();
@@ -981,14 +1493,327 @@ public class QueryTester {
         forumInFile.close();
       }
 
+      if ((Boolean) opts.get("replay")) {
+        Path paramDir = Paths.get((String) opts.get("<paramDir>"));
+        Map<ComplexAndShortOp, List<Operation>> readParams =
+            new EnumMap<>(ComplexAndShortOp.class);
+        Map<ComplexAndShortOp, Integer> readFrequencies =
+            new EnumMap<>(ComplexAndShortOp.class);
+        for (ComplexAndShortOp op : REPLAY_FREQUENCIES.keySet()) {
+          Path path = paramDir.resolve(String.format("interactive_%s_param.txt",
+              op.command.substring("query".length())));
+          if (!Files.exists(path)) {
+            System.out.println(String.format("WARNING: File %s not found, "
+                + "%s will not be replayed.", path.toAbsolutePath(),
+                op.command));
+            continue;
+          }
+
+          List<Operation> params = parseSubstitutionParameters(op, path);
+          if (params.isEmpty()) {
+            System.out.println(String.format("WARNING: File %s is empty, "
+                + "%s will not be replayed.", path.toAbsolutePath(),
+                op.command));
+            continue;
+          }
+
+          int freq = Integer.decode(prop.getProperty(
+              "replay." + op.opHandlerConfigKey + ".freq",
+              REPLAY_FREQUENCIES.get(op).toString()));
+          if (freq <= 0) {
+            System.out.println(String.format("WARNING: Frequency of %s is "
+                + "%d, it will not be replayed.", op.command, freq));
+            continue;
+          }
+
+          readParams.put(op, params);
+          readFrequencies.put(op, freq);
+        }
+
+        Map<UpdateOp, OperationHandler> updateHandlers =
+            new EnumMap<>(UpdateOp.class);
+        for (UpdateOp op : UpdateOp.values()) {
+          updateHandlers.put(op, (OperationHandler) Class
+              .forName(prop.getProperty(dbName + "." + op.opHandlerConfigKey))
+              .getDeclaredConstructor().newInstance());
+        }
+
+        cmdStr = "replay";
+        new Replayer(dbConnectionState, csopHandlerMap, updateHandlers,
+            readParams, readFrequencies).run(inputDir,
+            Long.decode((String) opts.get("<count>")),
+            Double.parseDouble((String) opts.get("--timeCompression")),
+            Integer.decode((String) opts.get("--threads")), timeUnits);
+      }
+
       if (repeatCount == 1) {
         printResult(resultReporter.result());
       }
     }
 
+    if (statsFile != null) {
+      statsFile.close();
+    }
+
+    if (histogramLog != null) {
+      histogramLog.close();
+    }
+
     dbConnectionState.close();
   }
 
+  /**
+   * Replays the LDBC SNB interactive workload against the configured
+   * handlers: the operations of the person and forum update streams in the
+   * order of their scheduled times, interleaved with complex reads taking
+   * their parameters from the substitution parameter files, in the ratios
+   * given by REPLAY_FREQUENCIES.
+   * <p>
+   * Each operation is started at its scheduled time scaled by the time
+   * compression ratio, and its latency is measured from that time. With a
+   * ratio of 0 there is no schedule, and latencies are measured from when
+   * each operation actually starts. Updates are executed one at a time in
+   * stream order, as later updates may depend on earlier ones. Reads are
+   * executed on a pool of threads. At most MAX_PENDING_PER_THREAD operations
+   * per thread are submitted but not yet done, so a replay that falls behind
+   * stalls instead of queueing up the rest of the streams. Handlers are
+   * not assumed to be thread-safe, so each thread executes operations with
+   * its own instances of them, of the same classes as the given ones.
+   */
+  private static class Replayer {
+
+    private static final int MAX_PENDING_PER_THREAD = 16;
+
+    private final DbConnectionState connectionState;
+
+    private final Map<ComplexAndShortOp, OperationHandler> readHandlers;
+
+    private final Map<UpdateOp, OperationHandler> updateHandlers;
+
+    private final Map<ComplexAndShortOp, List<Operation>> readParams;
+
+    private final Map<ComplexAndShortOp, Integer> readFrequencies;
+
+    /*
+     * Latencies by operation command, in nanoseconds.
+     */
+    private final Map<String, Histogram> latencies =
+        new ConcurrentHashMap<>();
+
+    private final AtomicReference<Exception> failure =
+        new AtomicReference<>();
+
+    private final ThreadLocal<ResultReporter> resultReporters =
+        ThreadLocal.withInitial(() -> new ResultReporter.SimpleResultReporter(
+            new ConcurrentErrorReporter()));
+
+    /*
+     * Each thread's own handler instances, by handler class.
+     */
+    private final ThreadLocal<Map<Class<?>, OperationHandler>> threadHandlers =
+        ThreadLocal.withInitial(HashMap::new);
+
+    Replayer(DbConnectionState connectionState,
+             Map<ComplexAndShortOp, OperationHandler> readHandlers,
+             Map<UpdateOp, OperationHandler> updateHandlers,
+             Map<ComplexAndShortOp, List<Operation>> readParams,
+             Map<ComplexAndShortOp, Integer> readFrequencies) {
+      this.connectionState = connectionState;
+      this.readHandlers = readHandlers;
+      this.updateHandlers = updateHandlers;
+      this.readParams = readParams;
+      this.readFrequencies = readFrequencies;
+    }
+
+    /**
+     * Replays at most count updates from the update streams in inputDir (all
+     * of them if count is 0) with the reads they bring along.
+     */
+    void run(String inputDir, long count, double timeCompression,
+             int threads, String timeUnits) throws Exception {
+      ExecutorService updateExecutor = Executors.newSingleThreadExecutor();
+      ExecutorService readExecutor = Executors.newFixedThreadPool(threads);
+      Semaphore pendingUpdates = new Semaphore(MAX_PENDING_PER_THREAD);
+      Semaphore pendingReads =
+          new Semaphore(threads * MAX_PENDING_PER_THREAD);
+      boolean paced = timeCompression > 0;
+      long updateCount = 0;
+      long startTimeMillis = System.currentTimeMillis();
+      try (BufferedReader personInFile = Files.newBufferedReader(
+              Paths.get(inputDir + "/updateStream_0_0_person.csv"),
+              StandardCharsets.UTF_8);
+          BufferedReader forumInFile = Files.newBufferedReader(
+              Paths.get(inputDir + "/updateStream_0_0_forum.csv"),
+              StandardCharsets.UTF_8)) {
+        Map<ComplexAndShortOp, Integer> nextParams =
+            new EnumMap<>(ComplexAndShortOp.class);
+
+        long startNanos = System.nanoTime();
+        long firstScheduledMillis = -1;
+        String personLine = personInFile.readLine();
+        String forumLine = forumInFile.readLine();
+        while ((personLine != null || forumLine != null)
+            && (count == 0 || updateCount < count)
+            && failure.get() == null) {
+          // Merge the two streams on the scheduled time in the first column.
+          String line;
+          if (forumLine == null || (personLine != null
+              && scheduledMillis(personLine) <= scheduledMillis(forumLine))) {
+            line = personLine;
+            personLine = personInFile.readLine();
+          } else {
+            line = forumLine;
+            forumLine = forumInFile.readLine();
+          }
+
+          long scheduledMillis = scheduledMillis(line);
+          if (firstScheduledMillis < 0) {
+            firstScheduledMillis = scheduledMillis;
+          }
+          long scheduledNanos = startNanos + (long) ((scheduledMillis
+              - firstScheduledMillis) * timeCompression * 1000000);
+
+          UpdateOp uop =
+              UpdateOp.values()[Integer.decode(line.split("\\|")[2]) - 1];
+          Operation op = parseUpdate(uop, line);
+
+          long waitNanos;
+          while ((waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+          }
+
+          submit(updateExecutor, pendingUpdates, updateHandlers.get(uop), op,
+              uop.command, paced, scheduledNanos);
+          updateCount++;
+
+          for (Map.Entry<ComplexAndShortOp, Integer> freq :
+              readFrequencies.entrySet()) {
+            ComplexAndShortOp csop = freq.getKey();
+            if (updateCount % freq.getValue() == 0) {
+              List<Operation> params = readParams.get(csop);
+              int next = nextParams.getOrDefault(csop, 0);
+              nextParams.put(csop, (next + 1) % params.size());
+              submit(readExecutor, pendingReads, readHandlers.get(csop),
+                  params.get(next), csop.command, paced, scheduledNanos);
+            }
+          }
+        }
+      } catch (Exception e) {
+        // Have operations still queued skip rather than execute.
+        failure.compareAndSet(null, e);
+        throw e;
+      } finally {
+        updateExecutor.shutdown();
+        readExecutor.shutdown();
+        updateExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        readExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      }
+      long endTimeMillis = System.currentTimeMillis();
+
+      if (failure.get() != null) {
+        throw failure.get();
+      }
+
+      report(updateCount, startTimeMillis, endTimeMillis, timeUnits);
+    }
+
+    private static long scheduledMillis(String line) {
+      return Long.decode(line.substring(0, line.indexOf('|')));
+    }
+
+    /*
+     * Executes the operation on the executor, with the executing thread's own
+     * instance of the handler's class, recording its latency from the
+     * scheduled start if paced, or else from its actual start. Blocks until
+     * one of the executor's pending permits is free.
+     */
+    private void submit(ExecutorService executor, Semaphore pending,
+                        OperationHandler handler, Operation op,
+                        String command, boolean paced, long scheduledNanos)
+        throws InterruptedException {
+      Histogram histogram = latencies.computeIfAbsent(command,
+          (c) -> new ConcurrentHistogram(3));
+      pending.acquire();
+      executor.execute(() -> {
+        try {
+          if (failure.get() != null) {
+            return;
+          }
+          long startNanos = paced ? scheduledNanos : System.nanoTime();
+          threadHandler(handler).executeOperation(op, connectionState,
+              resultReporters.get());
+          histogram.recordValue(System.nanoTime() - startNanos);
+        } catch (Exception e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          pending.release();
+        }
+      });
+    }
+
+    /*
+     * Returns the calling thread's instance of the handler's class, creating
+     * it on first use.
+     */
+    private OperationHandler threadHandler(OperationHandler handler)
+        throws ReflectiveOperationException {
+      Map<Class<?>, OperationHandler> handlers = threadHandlers.get();
+      OperationHandler own = handlers.get(handler.getClass());
+      if (own == null) {
+        own = handler.getClass().getDeclaredConstructor().newInstance();
+        handlers.put(handler.getClass(), own);
+      }
+      return own;
+    }
+
+    private void report(long updateCount, long startTimeMillis,
+                        long endTimeMillis, String timeUnits) {
+      long nanosPerTimeUnit = TimeUnit.valueOf(timeUnits).toNanos(1);
+      double seconds = Math.max(endTimeMillis - startTimeMillis, 1) / 1000.0;
+
+      long totalCount = 0;
+      for (Histogram histogram : latencies.values()) {
+        totalCount += histogram.getTotalCount();
+      }
+
+      System.out.println(String.format(
+          "Replay Stats:\n"
+              + "  Units:            %s\n"
+              + "  Updates:          %d\n"
+              + "  Operations:       %d\n"
+              + "  Duration:         %.1f s\n"
+              + "  Throughput:       %.1f ops/s\n",
+          timeUnits, updateCount, totalCount, seconds,
+          totalCount / seconds));
+
+      System.out.println(String.format(
+          "  %-12s %10s %10s %10s %10s %10s %10s %10s %10s",
+          "Operation", "Count", "ops/s", "Mean", "50th", "90th", "99th",
+          "99.9th", "Max"));
+      for (String command : new TreeSet<>(latencies.keySet())) {
+        Histogram histogram = latencies.get(command);
+        System.out.println(String.format(
+            "  %-12s %10d %10.1f %10d %10d %10d %10d %10d %10d",
+            command,
+            histogram.getTotalCount(),
+            histogram.getTotalCount() / seconds,
+            (long) histogram.getMean() / nanosPerTimeUnit,
+            histogram.getValueAtPercentile(50.0) / nanosPerTimeUnit,
+            histogram.getValueAtPercentile(90.0) / nanosPerTimeUnit,
+            histogram.getValueAtPercentile(99.0) / nanosPerTimeUnit,
+            histogram.getValueAtPercentile(99.9) / nanosPerTimeUnit,
+            histogram.getMaxValue() / nanosPerTimeUnit));
+
+        if (histogramLog != null) {
+          histogram.setStartTimeStamp(startTimeMillis);
+          histogram.setEndTimeStamp(endTimeMillis);
+          histogram.setTag(command);
+          histogramLog.outputIntervalHistogram(histogram);
+        }
+      }
+    }
+  }
+
   /**
    * Print a result from executing one of the queries.
    */